@@ -92,13 +92,8 @@ public class AgentController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteAgent(@PathVariable UUID id) {
         try {
-            Optional<Agent> agent = agentRepository.findById(id);
-            if (agent.isPresent()) {
-                agentRepository.delete(agent.get());
-                return ResponseEntity.noContent().build();
-            } else {
-                throw new ResourceNotFoundException("Agent not found");
-            }
+            service.deleteAgent(id);
+            return ResponseEntity.noContent().build();
         } catch (Exception e) {
             return handleError(e);
         }
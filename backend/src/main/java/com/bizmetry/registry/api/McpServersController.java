@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,10 +16,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bizmetry.registry.dto.agent.AgentDTO;
 import com.bizmetry.registry.dto.mcpserver.McpServerCreateRequest;
+import com.bizmetry.registry.dto.mcpserver.McpServerPageResponse;
 import com.bizmetry.registry.dto.mcpserver.McpServerResponse;
 import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
 import com.bizmetry.registry.dto.mcpserver.McpToolDto;
+import com.bizmetry.registry.dto.mcpserver.ToolBatchInvokeRequest;
+import com.bizmetry.registry.dto.mcpserver.ToolBatchInvokeResponse;
+import com.bizmetry.registry.dto.mcpserver.ToolCacheSettings;
 import com.bizmetry.registry.dto.mcpserver.ToolInvokeRequest;
 import com.bizmetry.registry.dto.mcpserver.ToolInvokeResponse;
 import com.bizmetry.registry.dto.mcpserver.connection.McpServerTestConnectionResponse;
@@ -29,6 +36,9 @@ import com.bizmetry.registry.service.McpServerService;
 
 import jakarta.validation.Valid;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 @RestController
 @RequestMapping("/v1/api/registry/mcp-servers")
 public class McpServersController {
@@ -43,6 +53,10 @@ public class McpServersController {
   
   }
 
+  /**
+   * Listado de MCP Servers (search + sort en DB). Lista completa, como siempre; para listados
+   * grandes usar {@link #page}.
+   */
   @GetMapping
   public List<McpServerResponse> list(
       @RequestParam(name = "includeTools", defaultValue = "true") boolean includeTools,
@@ -52,6 +66,24 @@ public class McpServersController {
     return service.list(includeTools, q, sortBy, sortDir);
   }
 
+  /**
+   * Listado paginado (mismo search + sort), siempre como {@link McpServerPageResponse}:
+   * - page: page index (0-based), paginado por offset
+   * - cursor: nextCursor de la página anterior (keyset); tiene prioridad sobre page
+   * - size: tamaño de página. default 50, max 500
+   */
+  @GetMapping("/page")
+  public McpServerPageResponse page(
+      @RequestParam(name = "includeTools", defaultValue = "true") boolean includeTools,
+      @RequestParam(name = "q", required = false) String q,
+      @RequestParam(name = "sortBy", defaultValue = "updatedTs") String sortBy,
+      @RequestParam(name = "sortDir", defaultValue = "desc") String sortDir,
+      @RequestParam(name = "page", required = false) Integer page,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "size", required = false) Integer size) {
+    return service.page(includeTools, q, sortBy, sortDir, page, cursor, size);
+  }
+
   @GetMapping("/{serverId}")
   public McpServerResponse get(@PathVariable("serverId") UUID serverId) {
     return service.get(serverId);
@@ -74,12 +106,45 @@ public class McpServersController {
     service.delete(serverId);
   }
 
+  // ✅ async: el thread de Tomcat se libera mientras el tool corre (Mono -> async dispatch de MVC)
   @PostMapping("/{serverId}/tools/{toolName}/invoke")
-  public ToolInvokeResponse invoke(
+  public Mono<ToolInvokeResponse> invoke(
+      @PathVariable("serverId") UUID serverId,
+      @PathVariable("toolName") String toolName,
+      @Valid @RequestBody ToolInvokeRequest req) {
+    return service.invokeToolAsync(serverId, toolName, req);
+  }
+
+  // ✅ batch: N invokes (distintos servers/tools) en paralelo con deadline total; resultados por item
+  @PostMapping("/invoke/batch")
+  public Mono<ToolBatchInvokeResponse> invokeBatch(@Valid @RequestBody ToolBatchInvokeRequest req) {
+    return service.invokeBatch(req);
+  }
+
+  // ✅ impacto: agentes que usan el server (o solo la tool toolName)
+  @GetMapping("/{serverId}/agents")
+  public List<AgentDTO> agents(
+      @PathVariable("serverId") UUID serverId,
+      @RequestParam(value = "toolName", required = false) String toolName) {
+    return service.agentsUsing(serverId, toolName);
+  }
+
+  // ✅ streaming (SSE): start -> progress/notification a medida que llegan -> result | error
+  @PostMapping(value = "/{serverId}/tools/{toolName}/invoke/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> invokeStream(
       @PathVariable("serverId") UUID serverId,
       @PathVariable("toolName") String toolName,
       @Valid @RequestBody ToolInvokeRequest req) {
-    return service.invokeTool(serverId, toolName, req);
+    return service.invokeToolStream(serverId, toolName, req);
+  }
+
+  // ✅ opt-in del cache de resultados de una tool (ttlSeconds null / 0 = desactivar)
+  @PutMapping("/{serverId}/tools/{toolName}/cache")
+  public ToolCacheSettings setToolCache(
+      @PathVariable("serverId") UUID serverId,
+      @PathVariable("toolName") String toolName,
+      @Valid @RequestBody ToolCacheSettings req) {
+    return service.setToolCacheTtl(serverId, toolName, req.ttlSeconds);
   }
 
   @GetMapping("/{serverId}/definition")
@@ -1,17 +1,78 @@
 package com.bizmetry.registry.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import com.bizmetry.registry.mcp.HttpMcpClient;
 import com.bizmetry.registry.mcp.McpClient;
+import com.bizmetry.registry.mcp.McpEndpointResolver;
+import com.bizmetry.registry.mcp.McpLatencyTracker;
+import com.bizmetry.registry.mcp.McpSessionPool;
+import com.bizmetry.registry.mcp.McpSingleFlight;
+import com.bizmetry.registry.mcp.McpTransport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import reactor.netty.http.client.HttpClient;
+
 @Configuration
 public class McpClientConfig {
 
   @Bean
-  public McpClient mcpClient(ObjectMapper mapper) {
-    return new HttpMcpClient(mapper);
+  public McpSessionPool mcpSessionPool(
+      @Value("${bizmetry.mcp.session.idleTtlMs:300000}") long idleTtlMs,
+      @Value("${bizmetry.mcp.session.maxSize:1000}") int maxSize) {
+    return new McpSessionPool(idleTtlMs, maxSize);
+  }
+
+  // ✅ un solo transport (y un solo pool de conexiones) para test connection, invoke y healthcheck
+  @Bean
+  public McpTransport mcpTransport(
+      WebClient.Builder builder,
+      HttpClient mcpHttpClient,
+      ObjectMapper mapper,
+      McpSessionPool sessionPool,
+      @Value("${bizmetry.mcp.invoke.passThrough:true}") boolean passThrough,
+      @Value("${bizmetry.mcp.invoke.maxResultBytes:16777216}") int maxResultBytes) {
+    WebClient webClient = builder.clone()
+        .clientConnector(new ReactorClientHttpConnector(mcpHttpClient))
+        .build();
+    return new McpTransport(webClient, mapper, sessionPool, passThrough, maxResultBytes);
+  }
+
+  // ✅ llamadas idénticas concurrentes (tools/list, tools read-only, test connection) comparten un request
+  @Bean
+  public McpSingleFlight mcpSingleFlight(
+      ObjectMapper mapper,
+      @Value("${bizmetry.mcp.coalesce.enabled:true}") boolean enabled) {
+    return new McpSingleFlight(mapper, enabled);
+  }
+
+  // ✅ URL que funcionó por discovery URL (fallback de scheme memoizado) + cache negativo corto
+  @Bean
+  public McpEndpointResolver mcpEndpointResolver(
+      @Value("${bizmetry.mcp.resolve.ttlMs:3600000}") long ttlMs,
+      @Value("${bizmetry.mcp.resolve.negativeTtlMs:30000}") long negativeTtlMs) {
+    return new McpEndpointResolver(ttlMs, negativeTtlMs);
+  }
+
+  // ✅ histograma rodante de latencias por (server, método) -> timeouts adaptativos y hedging
+  @Bean
+  public McpLatencyTracker mcpLatencyTracker(
+      @Value("${bizmetry.mcp.latency.windowSize:256}") int windowSize,
+      @Value("${bizmetry.mcp.latency.minSamples:20}") int minSamples,
+      @Value("${bizmetry.mcp.timeout.quantile:0.99}") double quantile,
+      @Value("${bizmetry.mcp.timeout.factor:3}") double factor,
+      @Value("${bizmetry.mcp.timeout.minMs:1000}") long minMs,
+      @Value("${bizmetry.mcp.timeout.maxMs:120000}") long maxMs,
+      @Value("${bizmetry.mcp.timeout.maxFallbackFactor:2}") double maxFallbackFactor) {
+    return new McpLatencyTracker(windowSize, minSamples, quantile, factor, minMs, maxMs, maxFallbackFactor);
+  }
+
+  @Bean
+  public McpClient mcpClient(McpTransport transport, McpEndpointResolver resolver, McpLatencyTracker latencies) {
+    return new HttpMcpClient(transport, resolver, latencies);
   }
 }
@@ -1,9 +1,25 @@
 package com.bizmetry.registry.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 @EnableScheduling
 public class SchedulingConfig {
+
+  // ✅ más de un thread: los healthcheck jobs bloquean esperando probes y el flush del write-behind
+  // (cada 1s) no puede quedar atrás de ellos
+  @Bean
+  public ThreadPoolTaskScheduler taskScheduler(
+      @Value("${bizmetry.scheduling.poolSize:4}") int poolSize) {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(Math.max(2, poolSize));
+    scheduler.setThreadNamePrefix("bizmetry-sched-");
+    scheduler.setWaitForTasksToCompleteOnShutdown(true);
+    scheduler.setAwaitTerminationSeconds(10);
+    return scheduler;
+  }
 }
@@ -1,15 +1,23 @@
 package com.bizmetry.registry.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
@@ -39,4 +47,58 @@ public class WebClientConfig {
       throw new IllegalStateException("Failed to create insecureWebClient", e);
     }
   }
+
+  // ------------------------------------------------------------------
+  // MCP outbound (usado por McpTransport)
+  // ------------------------------------------------------------------
+
+  /**
+   * Pool de conexiones para tráfico MCP. Reactor Netty mantiene un pool por host remoto,
+   * así maxConnections es el tope por server MCP.
+   */
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider mcpConnectionProvider(
+      @Value("${bizmetry.mcp.http.maxConnections:200}") int maxConnections,
+      @Value("${bizmetry.mcp.http.pendingAcquireMaxCount:1000}") int pendingAcquireMaxCount,
+      @Value("${bizmetry.mcp.http.pendingAcquireTimeoutMs:10000}") long pendingAcquireTimeoutMs,
+      @Value("${bizmetry.mcp.http.maxIdleTimeMs:30000}") long maxIdleTimeMs,
+      @Value("${bizmetry.mcp.http.maxLifeTimeMs:300000}") long maxLifeTimeMs,
+      @Value("${bizmetry.mcp.http.evictInBackgroundMs:30000}") long evictInBackgroundMs) {
+    return ConnectionProvider.builder("bizmetry-mcp")
+        .maxConnections(Math.max(1, maxConnections))
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+        .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+        .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+        .evictInBackground(Duration.ofMillis(evictInBackgroundMs))
+        .metrics(true)
+        .build();
+  }
+
+  /**
+   * HttpClient MCP: HTTP/2 negociado por ALPN sobre TLS (h2) con fallback a HTTP/1.1,
+   * y opcionalmente h2c (upgrade) en texto plano. Con h2 muchas tool calls concurrentes
+   * al mismo server se multiplexan en pocas conexiones.
+   *
+   * Compresión de respuestas (Accept-Encoding: gzip) opt-in: las respuestas JSON-RPC suelen ser
+   * chicas y descomprimir cuesta CPU.
+   */
+  @Bean
+  public HttpClient mcpHttpClient(
+      ConnectionProvider mcpConnectionProvider,
+      @Value("${bizmetry.mcp.http.connectTimeoutMs:6000}") int connectTimeoutMs,
+      @Value("${bizmetry.mcp.http.http2:true}") boolean http2,
+      @Value("${bizmetry.mcp.http.h2c:false}") boolean h2c,
+      @Value("${bizmetry.mcp.http.compress:false}") boolean compress) {
+
+    List<HttpProtocol> protocols = new ArrayList<>();
+    if (http2) protocols.add(HttpProtocol.H2);
+    if (h2c) protocols.add(HttpProtocol.H2C);
+    protocols.add(HttpProtocol.HTTP11);
+
+    return HttpClient.create(mcpConnectionProvider)
+        .protocol(protocols.toArray(HttpProtocol[]::new))
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+        .compress(compress);
+  }
 }
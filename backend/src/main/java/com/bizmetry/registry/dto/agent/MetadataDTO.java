@@ -8,6 +8,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class MetadataDTO {
 
+    // ObjectMapper es thread-safe y caro de construir: uno solo para toda la clase
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private List<LLMInfo> llms; // Lista de LLMs asociadas
     private List<McpTool> tools; // Lista de herramientas MCP asociadas
     private Discovery discovery; // Información sobre el discovery
@@ -39,14 +42,12 @@ public class MetadataDTO {
 
     // Convertir MetadataDTO a JsonNode
     public JsonNode convertToJsonNode() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.valueToTree(this);
+        return MAPPER.valueToTree(this);
     }
 
     // Convertir un JsonNode a MetadataDTO
     public static MetadataDTO fromJsonNode(JsonNode node) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.convertValue(node, MetadataDTO.class);
+        return MAPPER.convertValue(node, MetadataDTO.class);
     }
 
     // Clases internas para cada sección de la metadata
@@ -0,0 +1,17 @@
+package com.bizmetry.registry.dto.mcpserver;
+
+import java.util.List;
+
+/**
+ * Página de MCP Servers.
+ *
+ * - nextCursor: pasarlo como ?cursor= para la siguiente página (keyset); null si no hay más
+ * - page: solo informativo cuando se pagina por offset (?page=)
+ */
+public class McpServerPageResponse {
+  public List<McpServerResponse> items;
+  public Integer page;
+  public int size;
+  public boolean hasMore;
+  public String nextCursor;
+}
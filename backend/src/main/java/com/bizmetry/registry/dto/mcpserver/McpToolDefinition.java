@@ -22,6 +22,12 @@ public class McpToolDefinition {
   @NotNull
   private JsonNode arguments;
 
+  // Tool annotations de MCP (readOnlyHint, idempotentHint, destructiveHint...), opcionales
+  private JsonNode annotations;
+
+  // Opt-in del operador: cachear resultados de tools/call por N segundos (null = sin cambios, <= 0 = no cachear)
+  private Integer cacheTtlSeconds;
+
   // Getters y Setters
 
   public String getName() {
@@ -56,6 +62,22 @@ public class McpToolDefinition {
     this.arguments = arguments;
   }
 
+  public JsonNode getAnnotations() {
+    return annotations;
+  }
+
+  public void setAnnotations(JsonNode annotations) {
+    this.annotations = annotations;
+  }
+
+  public Integer getCacheTtlSeconds() {
+    return cacheTtlSeconds;
+  }
+
+  public void setCacheTtlSeconds(Integer cacheTtlSeconds) {
+    this.cacheTtlSeconds = cacheTtlSeconds;
+  }
+
   // Builder Pattern
   public static McpToolDefinitionBuilder builder() {
     return new McpToolDefinitionBuilder();
@@ -66,6 +88,7 @@ public class McpToolDefinition {
     private String description;
     private String version;
     private JsonNode arguments;
+    private JsonNode annotations;
 
     // Métodos del Builder
     public McpToolDefinitionBuilder name(String name) {
@@ -88,12 +111,18 @@ public class McpToolDefinition {
       return this;
     }
 
+    public McpToolDefinitionBuilder annotations(JsonNode annotations) {
+      this.annotations = annotations;
+      return this;
+    }
+
     public McpToolDefinition build() {
       McpToolDefinition toolDefinition = new McpToolDefinition();
       toolDefinition.setName(this.name);
       toolDefinition.setDescription(this.description);
       toolDefinition.setVersion(this.version);
       toolDefinition.setArguments(this.arguments);
+      toolDefinition.setAnnotations(this.annotations);
       return toolDefinition;
     }
   }
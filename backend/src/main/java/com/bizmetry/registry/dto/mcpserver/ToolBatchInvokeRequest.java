@@ -0,0 +1,30 @@
+package com.bizmetry.registry.dto.mcpserver;
+
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+public class ToolBatchInvokeRequest {
+
+  @NotEmpty
+  @Valid
+  public List<Item> items;
+
+  // deadline total del batch (ms); null = bizmetry.mcp.batch.deadlineMs
+  public Integer deadlineMs;
+
+  /**
+   * Un invoke del batch: mismos campos que {@link ToolInvokeRequest} (args, timeoutMs, auth, ...)
+   * más el server y la tool.
+   */
+  public static class Item extends ToolInvokeRequest {
+    @NotNull
+    public UUID serverId;
+
+    @NotNull
+    public String toolName;
+  }
+}
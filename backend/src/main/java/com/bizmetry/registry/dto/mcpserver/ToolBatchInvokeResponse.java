@@ -0,0 +1,14 @@
+package com.bizmetry.registry.dto.mcpserver;
+
+import java.util.List;
+
+public class ToolBatchInvokeResponse {
+
+  public List<ToolInvokeResponse> results; // mismo orden que request.items
+
+  public int succeeded;
+  public int failed;
+  public boolean deadlineExceeded;
+
+  public Long latencyMs;
+}
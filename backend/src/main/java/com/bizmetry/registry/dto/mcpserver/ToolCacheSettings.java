@@ -0,0 +1,16 @@
+package com.bizmetry.registry.dto.mcpserver;
+
+import java.util.UUID;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * Cache de resultados de una tool. Request: solo ttlSeconds (null o 0 = no cachear).
+ */
+public class ToolCacheSettings {
+  public UUID serverId;
+  public String toolName;
+
+  @Min(0)
+  public Integer ttlSeconds;
+}
@@ -8,6 +8,9 @@ public class ToolInvokeRequest {
   public Integer timeoutMs;
   public Boolean dryRun;
 
+  // hedged request (solo tools idempotentes/read-only); null = default de bizmetry.mcp.hedge.defaultEnabled
+  public Boolean hedge;
+
   @Valid
   public Auth auth;
 
@@ -8,8 +8,10 @@ public class ToolInvokeResponse {
   public String toolName;
 
   public boolean ok;
-  public Object result;   // puede ser Map/List/String/JsonNode
+  public Object result;   // puede ser Map/List/String/JsonNode o TokenBuffer (pass-through)
   public String error;
 
   public Long latencyMs;
+
+  public boolean cached;  // true = servido desde el cache de resultados (sin llamar al server)
 }
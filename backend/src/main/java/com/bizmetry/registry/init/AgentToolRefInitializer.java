@@ -0,0 +1,70 @@
+package com.bizmetry.registry.init;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.model.Agent;
+import com.bizmetry.registry.repo.AgentRepository;
+import com.bizmetry.registry.service.AgentToolRefService;
+
+/**
+ * Backfill de agent_tool_refs para agentes persistidos antes de que existiera la tabla.
+ * Reemplaza al índice GIN sobre agents.metadata.tools, que ya no se consulta.
+ */
+@Component
+public class AgentToolRefInitializer implements ApplicationRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(AgentToolRefInitializer.class);
+
+  private final JdbcTemplate jdbc;
+  private final AgentRepository agentRepository;
+  private final AgentToolRefService toolRefs;
+
+  public AgentToolRefInitializer(JdbcTemplate jdbc, AgentRepository agentRepository, AgentToolRefService toolRefs) {
+    this.jdbc = jdbc;
+    this.agentRepository = agentRepository;
+    this.toolRefs = toolRefs;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    try {
+      jdbc.execute("DROP INDEX IF EXISTS idx_agents_metadata_tools");
+    } catch (Exception e) {
+      log.warn("⚠️ Unable to drop index idx_agents_metadata_tools: {}", e.getMessage());
+    }
+
+    try {
+      backfill();
+    } catch (Exception e) {
+      log.error("❌ Failed to backfill agent tool refs", e);
+    }
+  }
+
+  private void backfill() {
+    List<UUID> pending = jdbc.queryForList(
+        "SELECT a.agent_id FROM agents a"
+            + " WHERE jsonb_array_length(COALESCE(a.metadata -> 'tools', '[]'::jsonb)) > 0"
+            + " AND NOT EXISTS (SELECT 1 FROM agent_tool_refs r WHERE r.agent_id = a.agent_id)",
+        UUID.class);
+
+    int synced = 0;
+    for (Agent agent : agentRepository.findAllById(pending)) {
+      try {
+        toolRefs.sync(agent);
+        synced++;
+      } catch (Exception e) {
+        log.warn("⚠️ Unable to index tools of agent {}: {}", agent.getAgentId(), e.getMessage());
+      }
+    }
+
+    log.info("🔹 Agent tool refs backfill completed. agents={}", synced);
+  }
+}
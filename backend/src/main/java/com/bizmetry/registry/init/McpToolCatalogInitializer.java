@@ -0,0 +1,103 @@
+package com.bizmetry.registry.init;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
+import com.bizmetry.registry.jobs.McpToolNormalizer;
+import com.bizmetry.registry.model.McpServer;
+import com.bizmetry.registry.repo.McpServerRepository;
+import com.bizmetry.registry.service.McpServerService;
+import com.bizmetry.registry.service.McpToolCatalogService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Índices que JPA (ddl-auto) no sabe crear + backfill del catálogo de tools
+ * para servers persistidos antes de que existiera mcp_server_tools.
+ *
+ * Pendientes = servers sin tools_hash. Al sincronizarlos se les graba el hash de las tools del doc
+ * (también con cero tools), así no se reprocesan en cada arranque.
+ */
+@Component
+public class McpToolCatalogInitializer implements ApplicationRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(McpToolCatalogInitializer.class);
+
+  private static final List<String> INDEX_DDL = List.of(
+      "CREATE INDEX IF NOT EXISTS idx_mcp_server_tools_server_lname ON mcp_server_tools (server_id, lower(name))",
+      "CREATE INDEX IF NOT EXISTS idx_mcp_server_tools_lname_trgm ON mcp_server_tools USING gin (lower(name) gin_trgm_ops)",
+      "CREATE INDEX IF NOT EXISTS idx_mcp_servers_lname_trgm ON mcp_servers USING gin (lower(name) gin_trgm_ops)"
+  );
+
+  private final JdbcTemplate jdbc;
+  private final McpServerRepository serverRepo;
+  private final McpServerService serverService;
+  private final McpToolCatalogService catalog;
+  private final ObjectMapper om;
+
+  public McpToolCatalogInitializer(JdbcTemplate jdbc, McpServerRepository serverRepo,
+      McpServerService serverService, McpToolCatalogService catalog, ObjectMapper om) {
+    this.jdbc = jdbc;
+    this.serverRepo = serverRepo;
+    this.serverService = serverService;
+    this.catalog = catalog;
+    this.om = om;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    createIndexes();
+
+    try {
+      backfill();
+    } catch (Exception e) {
+      log.error("❌ Failed to backfill MCP tool catalog", e);
+    }
+  }
+
+  private void createIndexes() {
+    try {
+      jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+    } catch (Exception e) {
+      // sin permisos para crear la extensión: seguimos con los btree
+      log.warn("⚠️ pg_trgm extension not available, tool search will not use trigram indexes: {}", e.getMessage());
+    }
+
+    for (String ddl : INDEX_DDL) {
+      try {
+        jdbc.execute(ddl);
+      } catch (Exception e) {
+        log.warn("⚠️ Unable to create index ({}): {}", ddl, e.getMessage());
+      }
+    }
+  }
+
+  private void backfill() {
+    List<UUID> pending = jdbc.queryForList(
+        "SELECT server_id FROM mcp_servers WHERE tools_hash IS NULL", UUID.class);
+    if (pending.isEmpty())
+      return;
+
+    int synced = 0;
+    for (McpServer server : serverRepo.findAllById(pending)) {
+      UUID id = server.getServerId();
+      List<McpToolDefinition> tools = serverService.extractTools(server.getServerDoc());
+
+      catalog.sync(id, tools);
+
+      // solo si nadie lo marcó mientras tanto (un probe que ya escribió tools más nuevas)
+      jdbc.update("UPDATE mcp_servers SET tools_hash = ? WHERE server_id = ? AND tools_hash IS NULL",
+          McpToolNormalizer.hash(tools, om), id);
+      synced++;
+    }
+
+    log.info("🔹 MCP tool catalog backfill completed. servers={}", synced);
+  }
+}
@@ -0,0 +1,199 @@
+package com.bizmetry.registry.jobs;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.model.McpServer;
+import com.bizmetry.registry.model.McpServerHealth;
+import com.bizmetry.registry.service.McpProbeResult;
+import com.bizmetry.registry.service.McpServerHealthService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Motor de probes MCP: un virtual thread por server, acotado por un límite global
+ * y uno por host (para no martillar un mismo backend que aloja muchos servers).
+ *
+ * Cada resultado se registra vía {@link McpServerHealthService#applyProbe}: el health se encola
+ * en el write-behind y solo los cambios de tools tocan mcp_servers.
+ */
+@Component
+public class McpProbeEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(McpProbeEngine.class);
+
+  private final McpServerHealthService health;
+  private final Semaphore global;
+  private final int perHostConcurrency;
+  // solo hosts con probes en curso: la entrada se suelta cuando termina el último (no crece con
+  // servers borrados o que cambiaron de URL)
+  private final ConcurrentHashMap<String, HostSlot> perHost = new ConcurrentHashMap<>();
+
+  private final Timer sweepTimer;
+  private final AtomicReference<SweepStats> lastSweep = new AtomicReference<>(new SweepStats(0, 0, 0, 0));
+
+  public McpProbeEngine(
+      McpServerHealthService health,
+      MeterRegistry meters,
+      @Value("${bizmetry.mcp.healthcheck.maxConcurrency:32}") int maxConcurrency,
+      @Value("${bizmetry.mcp.healthcheck.perHostConcurrency:4}") int perHostConcurrency) {
+    this.health = health;
+    this.global = new Semaphore(Math.max(1, maxConcurrency));
+    this.perHostConcurrency = Math.max(1, perHostConcurrency);
+
+    this.sweepTimer = Timer.builder("mcp.healthcheck.sweep.duration")
+        .description("Duration of a full MCP healthcheck sweep")
+        .register(meters);
+    Gauge.builder("mcp.healthcheck.sweep.probes.per.second", lastSweep, r -> r.get().probesPerSecond())
+        .description("Probe throughput of the last MCP healthcheck sweep")
+        .register(meters);
+  }
+
+  /**
+   * Probea todos los servers en paralelo y bloquea hasta que termina el sweep.
+   *
+   * @param previous último health conocido por serverId (los que faltan nunca se probearon)
+   */
+  public SweepStats sweep(List<McpServer> servers, Map<UUID, McpServerHealth> previous) {
+    long start = System.nanoTime();
+    AtomicInteger ok = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (McpServer s : servers) {
+        executor.submit(() -> {
+          if (probeOne(s, previous.get(s.getServerId()))) ok.incrementAndGet();
+          else failed.incrementAndGet();
+        });
+      }
+    } // close() espera a que terminen todas las tareas
+
+    long elapsedNanos = System.nanoTime() - start;
+    sweepTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+    SweepStats stats = new SweepStats(servers.size(), ok.get(), failed.get(), elapsedNanos / 1_000_000);
+    lastSweep.set(stats);
+    return stats;
+  }
+
+  public SweepStats getLastSweep() {
+    return lastSweep.get();
+  }
+
+  private boolean probeOne(McpServer s, McpServerHealth prev) {
+    String sid = String.valueOf(s.getServerId());
+    String hostKey = hostKey(s.getDiscoveryUrl());
+    Semaphore host = retainHost(hostKey);
+
+    try {
+      global.acquire();
+      try {
+        host.acquire();
+        try {
+          log.debug("➡️ Checking [{}] name='{}' url='{}' currentStatus={}",
+              sid, s.getName(), s.getDiscoveryUrl(), s.getStatus());
+
+          McpProbeResult result = health.probeTiered(s, prev);
+          health.applyProbe(s, prev, result);
+
+          if (!result.isOk()) {
+            log.warn("❌ FAILED [{}] in {} ms -> {}", sid, result.getLatencyMs(), result.getError());
+          }
+          return result.isOk();
+
+        } finally {
+          host.release();
+        }
+      } finally {
+        global.release();
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      // error persistiendo el resultado: no cortamos el resto del sweep
+      log.warn("❌ FAILED [{}] -> {}", sid, e.getMessage());
+      return false;
+    } finally {
+      releaseHost(hostKey);
+    }
+  }
+
+  private Semaphore retainHost(String key) {
+    return perHost.compute(key, (k, slot) -> {
+      HostSlot out = slot != null ? slot : new HostSlot(perHostConcurrency);
+      out.users++;
+      return out;
+    }).permits;
+  }
+
+  private void releaseHost(String key) {
+    perHost.computeIfPresent(key, (k, slot) -> --slot.users == 0 ? null : slot);
+  }
+
+  private String hostKey(String url) {
+    try {
+      URI u = URI.create(url == null ? "" : url.trim());
+      if (u.getHost() != null) {
+        return u.getHost().toLowerCase(Locale.ROOT) + ":" + u.getPort();
+      }
+    } catch (Exception ignore) {
+      // URL inválida: la agrupamos tal cual
+    }
+    return String.valueOf(url);
+  }
+
+  /** Límite de un host + cuántos probes lo están usando (se muta solo dentro de compute). */
+  private static final class HostSlot {
+    private final Semaphore permits;
+    private int users;
+
+    private HostSlot(int permits) {
+      this.permits = new Semaphore(permits);
+    }
+  }
+
+  /**
+   * Resumen de un sweep.
+   */
+  public static final class SweepStats {
+    private final int total;
+    private final int ok;
+    private final int failed;
+    private final long durationMs;
+
+    public SweepStats(int total, int ok, int failed, long durationMs) {
+      this.total = total;
+      this.ok = ok;
+      this.failed = failed;
+      this.durationMs = durationMs;
+    }
+
+    public int getTotal() { return total; }
+    public int getOk() { return ok; }
+    public int getFailed() { return failed; }
+    public long getDurationMs() { return durationMs; }
+
+    public double probesPerSecond() {
+      return durationMs <= 0 ? 0d : total * 1000d / durationMs;
+    }
+  }
+}
@@ -1,11 +1,20 @@
 package com.bizmetry.registry.jobs;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public final class McpToolNormalizer {
   private McpToolNormalizer() {}
@@ -35,12 +44,62 @@ public final class McpToolNormalizer {
       JsonNode args = firstNonNull(t, "arguments", "inputSchema", "paramsSchema", "parameters");
       if (args != null && !args.isNull() && !args.isMissingNode()) d.setArguments(args);
 
+      JsonNode annotations = t.get("annotations");
+      if (annotations != null && annotations.isObject()) d.setAnnotations(annotations);
+
       out.add(d);
     }
 
     return out;
   }
 
+  /**
+   * Hash estable (SHA-256 hex) de las tools normalizadas: ordena por nombre y las claves
+   * de cada objeto JSON, así el mismo catálogo da el mismo hash aunque el server cambie el orden.
+   */
+  public static String hash(List<McpToolDefinition> tools, ObjectMapper om) {
+    List<McpToolDefinition> sorted = new ArrayList<>(tools == null ? List.of() : tools);
+    sorted.sort(Comparator.comparing(McpToolDefinition::getName, Comparator.nullsFirst(String::compareTo)));
+
+    ArrayNode arr = om.createArrayNode();
+    for (McpToolDefinition t : sorted) {
+      ObjectNode tn = arr.addObject();
+      tn.put("name", t.getName());
+      tn.put("description", t.getDescription());
+      tn.put("version", t.getVersion());
+      tn.set("arguments", canonical(t.getArguments(), om));
+      // solo si vienen: así el hash de los catálogos sin annotations no cambia
+      if (t.getAnnotations() != null) tn.set("annotations", canonical(t.getAnnotations(), om));
+    }
+
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(om.writeValueAsBytes(arr)));
+    } catch (NoSuchAlgorithmException | com.fasterxml.jackson.core.JsonProcessingException e) {
+      throw new IllegalStateException("Cannot hash MCP tools", e);
+    }
+  }
+
+  private static JsonNode canonical(JsonNode n, ObjectMapper om) {
+    if (n == null || n.isMissingNode()) return om.nullNode();
+    if (n.isObject()) {
+      Map<String, JsonNode> fields = new TreeMap<>();
+      for (Iterator<Map.Entry<String, JsonNode>> it = n.fields(); it.hasNext();) {
+        Map.Entry<String, JsonNode> e = it.next();
+        fields.put(e.getKey(), canonical(e.getValue(), om));
+      }
+      ObjectNode out = om.createObjectNode();
+      fields.forEach(out::set);
+      return out;
+    }
+    if (n.isArray()) {
+      ArrayNode out = om.createArrayNode();
+      for (JsonNode v : n) out.add(canonical(v, om));
+      return out;
+    }
+    return n;
+  }
+
   private static String text(JsonNode n, String field) {
     JsonNode v = n.get(field);
     if (v == null || v.isNull()) return null;
@@ -0,0 +1,53 @@
+package com.bizmetry.registry.mcp;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Credenciales de una llamada MCP. Pluggable: hoy anónimo o bearer token, mañana lo que haga falta
+ * (API key, mTLS por server, etc.) sin tocar el transport.
+ */
+public interface McpAuth {
+
+  McpAuth NONE = new McpAuth() {
+    @Override
+    public void apply(HttpHeaders headers) {}
+
+    @Override
+    public String fingerprint() { return null; }
+  };
+
+  /**
+   * Agrega los headers de auth al request.
+   */
+  void apply(HttpHeaders headers);
+
+  /**
+   * Discriminador de la credencial para separar sesiones en el pool (el pool lo hashea; null = anónimo).
+   */
+  String fingerprint();
+
+  /**
+   * Authorization: Bearer &lt;token&gt;. Acepta el token con o sin el prefijo "Bearer "; vacío = {@link #NONE}.
+   */
+  static McpAuth bearer(String bearerToken) {
+    if (bearerToken == null) return NONE;
+    String t = bearerToken.trim();
+
+    // Si pegaron "Bearer xxx", lo normalizamos a "xxx"
+    if (t.regionMatches(true, 0, "Bearer ", 0, 7)) {
+      t = t.substring(7).trim();
+    }
+    if (t.isEmpty()) return NONE;
+
+    String token = t;
+    return new McpAuth() {
+      @Override
+      public void apply(HttpHeaders headers) {
+        headers.setBearerAuth(token);
+      }
+
+      @Override
+      public String fingerprint() { return token; }
+    };
+  }
+}
@@ -0,0 +1,8 @@
+package com.bizmetry.registry.mcp;
+
+/**
+ * La llamada no salió: circuit breaker abierto o bulkhead lleno para ese server (fail fast).
+ */
+public class McpCallRejectedException extends McpClientException {
+  public McpCallRejectedException(String message) { super(message); }
+}
@@ -0,0 +1,132 @@
+package com.bizmetry.registry.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recuerda qué URL funcionó para cada discovery URL (el scheme original o el alternativo http/https),
+ * así el fallback de scheme se paga una vez y no en cada test connection / import / probe.
+ *
+ * - cache positivo con TTL (bizmetry.mcp.resolve.ttlMs)
+ * - cache negativo corto (bizmetry.mcp.resolve.negativeTtlMs): una URL que no responde por ningún
+ *   scheme falla rápido en vez de esperar dos timeouts seguidos
+ */
+public class McpEndpointResolver {
+
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+  public McpEndpointResolver(long ttlMs, long negativeTtlMs) {
+    this.ttlNanos = Math.max(0, ttlMs) * 1_000_000L;
+    this.negativeTtlNanos = Math.max(0, negativeTtlMs) * 1_000_000L;
+  }
+
+  /**
+   * URL a usar para hablar con el server: la resuelta si la conocemos, si no la normalizada.
+   */
+  public String resolvedOrSelf(String discoveryUrl) {
+    Entry e = fresh(discoveryUrl);
+    return (e != null && e.resolvedUrl != null) ? e.resolvedUrl : normalize(discoveryUrl);
+  }
+
+  /**
+   * Último error si la discovery URL está en cache negativo (fresco), o null.
+   */
+  public String cachedFailure(String discoveryUrl) {
+    Entry e = fresh(discoveryUrl);
+    return (e != null && e.resolvedUrl == null) ? e.error : null;
+  }
+
+  /**
+   * Candidatos a probar, en orden: la URL resuelta (si la hay), la original y el scheme alternativo.
+   */
+  public List<String> candidates(String discoveryUrl) {
+    String normalized = normalize(discoveryUrl);
+    List<String> out = new ArrayList<>();
+
+    Entry e = fresh(discoveryUrl);
+    if (e != null && e.resolvedUrl != null) out.add(e.resolvedUrl);
+
+    if (!out.contains(normalized)) out.add(normalized);
+
+    String alternate = alternateScheme(normalized);
+    if (alternate != null && !out.contains(alternate)) out.add(alternate);
+
+    return out;
+  }
+
+  public void remember(String discoveryUrl, String resolvedUrl) {
+    cache.put(normalize(discoveryUrl), new Entry(resolvedUrl, null));
+  }
+
+  public void fail(String discoveryUrl, String error) {
+    cache.put(normalize(discoveryUrl), new Entry(null, error));
+  }
+
+  public void forget(String discoveryUrl) {
+    cache.remove(normalize(discoveryUrl));
+  }
+
+  // ----------------------------
+  // URL helpers
+  // ----------------------------
+
+  public static String normalize(String url) {
+    if (url == null) return "";
+    String v = url.trim();
+
+    // si alguien pega accidentalmente "https://host///" -> recortamos trailing slashes
+    while (v.endsWith("/")) {
+      v = v.substring(0, v.length() - 1);
+    }
+    return v;
+  }
+
+  public static boolean isHttpScheme(String url) {
+    if (url == null) return false;
+    String v = url.trim().toLowerCase();
+    return v.startsWith("https://") || v.startsWith("http://");
+  }
+
+  /**
+   * Si URL empieza con https:// devuelve http://..., y viceversa.
+   * Si no es http(s), devuelve null.
+   */
+  static String alternateScheme(String url) {
+    if (url == null) return null;
+    String v = url.trim();
+    if (v.regionMatches(true, 0, "https://", 0, "https://".length())) {
+      return "http://" + v.substring("https://".length());
+    }
+    if (v.regionMatches(true, 0, "http://", 0, "http://".length())) {
+      return "https://" + v.substring("http://".length());
+    }
+    return null;
+  }
+
+  private Entry fresh(String discoveryUrl) {
+    String key = normalize(discoveryUrl);
+    Entry e = cache.get(key);
+    if (e == null) return null;
+
+    long ttl = e.resolvedUrl != null ? ttlNanos : negativeTtlNanos;
+    if (System.nanoTime() - e.at > ttl) {
+      cache.remove(key, e);
+      return null;
+    }
+    return e;
+  }
+
+  private static final class Entry {
+    private final String resolvedUrl; // null = cache negativo
+    private final String error;
+    private final long at = System.nanoTime();
+
+    private Entry(String resolvedUrl, String error) {
+      this.resolvedUrl = resolvedUrl;
+      this.error = error;
+    }
+  }
+}
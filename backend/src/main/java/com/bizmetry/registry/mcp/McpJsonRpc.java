@@ -67,4 +67,12 @@ public final class McpJsonRpc {
     root.set("params", mapper.createObjectNode());
     return root;
   }
+
+  // ✅ notificación post-handshake (sin id: no lleva respuesta JSON-RPC)
+  public static ObjectNode initializedNotification(ObjectMapper mapper) {
+    ObjectNode root = mapper.createObjectNode();
+    root.put("jsonrpc", "2.0");
+    root.put("method", "notifications/initialized");
+    return root;
+  }
 }
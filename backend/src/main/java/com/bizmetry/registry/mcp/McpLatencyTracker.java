@@ -0,0 +1,127 @@
+package com.bizmetry.registry.mcp;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Latencias observadas por (scope, método): scope es el serverId de un server registrado o la URL
+ * en un test connection / endpoint de agente. Guarda las últimas N muestras por key (histograma
+ * rodante) y calcula percentiles sobre ellas.
+ *
+ * Timeouts adaptativos: p99 × factor, acotado a [minMs, maxMs] y a maxFallbackFactor × el timeout
+ * fijo de siempre. Sin muestras suficientes se usa el timeout fijo. Solo cuentan las llamadas que
+ * respondieron: si los timeouts fueran muestras, un server colgado agrandaría su propio timeout
+ * (T, 3T, 9T...) y tardaríamos cada vez más en detectarlo.
+ */
+public class McpLatencyTracker {
+
+  // timeouts fijos históricos: se usan hasta juntar minSamples
+  private static final Map<String, Duration> FALLBACKS = Map.of(
+      "ping", Duration.ofSeconds(5),
+      "initialize", Duration.ofSeconds(10),
+      "tools/list", Duration.ofSeconds(15)
+  );
+  private static final Duration DEFAULT_FALLBACK = Duration.ofSeconds(30);
+
+  private final int windowSize;
+  private final int minSamples;
+  private final double quantile;
+  private final double factor;
+  private final long minMs;
+  private final long maxMs;
+  private final double maxFallbackFactor;
+
+  private final ConcurrentHashMap<Key, Window> windows = new ConcurrentHashMap<>();
+
+  public McpLatencyTracker(int windowSize, int minSamples, double quantile, double factor, long minMs, long maxMs,
+      double maxFallbackFactor) {
+    this.windowSize = Math.max(1, windowSize);
+    this.minSamples = Math.max(1, Math.min(minSamples, this.windowSize));
+    this.quantile = quantile;
+    this.factor = Math.max(1, factor);
+    this.minMs = Math.max(1, minMs);
+    this.maxMs = Math.max(this.minMs, maxMs);
+    this.maxFallbackFactor = Math.max(1, maxFallbackFactor);
+  }
+
+  public void record(Object scope, String method, long latencyMs) {
+    if (scope == null || method == null || latencyMs < 0) return;
+    windows.computeIfAbsent(new Key(scope, method), k -> new Window(windowSize)).add(latencyMs);
+  }
+
+  /**
+   * Percentil q (0..1) de la latencia en ms, o -1 si todavía no hay minSamples muestras.
+   */
+  public long percentile(Object scope, String method, double q) {
+    Window w = windows.get(new Key(scope, method));
+    return w == null ? -1 : w.percentile(q, minSamples);
+  }
+
+  /**
+   * Timeout por default para el método (initialize 10s, tools/list 15s, resto 30s) ajustado a lo observado.
+   */
+  public Duration timeout(Object scope, String method) {
+    return timeout(scope, method, FALLBACKS.getOrDefault(method, DEFAULT_FALLBACK));
+  }
+
+  public Duration timeout(Object scope, String method, Duration fallback) {
+    long p = percentile(scope, method, quantile);
+    if (p < 0) return fallback;
+    long ceiling = Math.min(maxMs, (long) Math.ceil(fallback.toMillis() * maxFallbackFactor));
+    long ms = (long) Math.ceil(p * factor);
+    return Duration.ofMillis(Math.max(Math.min(minMs, ceiling), Math.min(ceiling, ms)));
+  }
+
+  /**
+   * Registra la latencia de la llamada si respondió. Errores y timeouts no cuentan (un connection
+   * refused rápido no dice nada de la latencia, y un timeout no debe agrandar el próximo timeout).
+   * Solo para round-trips reales: una respuesta de cache (sesión del pool) no se envuelve.
+   */
+  public <T> Mono<T> track(Object scope, String method, Mono<T> call) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return call.doOnSuccess(v -> record(scope, method, (System.nanoTime() - start) / 1_000_000));
+    });
+  }
+
+  /**
+   * Server eliminado: descarta sus muestras.
+   */
+  public void forget(Object scope) {
+    windows.keySet().removeIf(k -> k.scope().equals(scope));
+  }
+
+  private record Key(Object scope, String method) {
+  }
+
+  private static final class Window {
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    private Window(int capacity) {
+      this.samples = new long[capacity];
+    }
+
+    private synchronized void add(long v) {
+      samples[next] = v;
+      next = (next + 1) % samples.length;
+      if (size < samples.length) size++;
+    }
+
+    private long percentile(double q, int minSamples) {
+      long[] copy;
+      synchronized (this) {
+        if (size < minSamples) return -1;
+        copy = Arrays.copyOf(samples, size);
+      }
+      Arrays.sort(copy);
+      int idx = (int) Math.ceil(Math.max(0, Math.min(1, q)) * copy.length) - 1;
+      return copy[Math.max(0, idx)];
+    }
+  }
+}
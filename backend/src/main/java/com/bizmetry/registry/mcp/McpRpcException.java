@@ -0,0 +1,17 @@
+package com.bizmetry.registry.mcp;
+
+/**
+ * El server respondió con un error JSON-RPC (method not found, invalid params, ...): a diferencia de
+ * un error HTTP o de red, el server está vivo y contestando.
+ */
+public class McpRpcException extends McpClientException {
+
+  private final int code;
+
+  public McpRpcException(int code, String message) {
+    super(message);
+    this.code = code;
+  }
+
+  public int getCode() { return code; }
+}
@@ -0,0 +1,8 @@
+package com.bizmetry.registry.mcp;
+
+/**
+ * El server ya no reconoce el Mcp-Session-Id (404 / session not found): hay que re-inicializar.
+ */
+public class McpSessionExpiredException extends McpClientException {
+  public McpSessionExpiredException(String message) { super(message); }
+}
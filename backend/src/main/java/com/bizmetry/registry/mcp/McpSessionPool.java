@@ -0,0 +1,97 @@
+package com.bizmetry.registry.mcp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de sesiones MCP (session id + resultado de initialize) para no repetir el handshake
+ * en cada tools/call, tools/list o probe.
+ *
+ * Key: discovery URL normalizada + hash del bearer token (las sesiones no se comparten entre credenciales).
+ * Entradas con idle TTL; si se supera maxSize se descartan primero las vencidas y luego las menos usadas.
+ */
+public class McpSessionPool {
+
+  private final long idleTtlNanos;
+  private final int maxSize;
+  private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+
+  public McpSessionPool(long idleTtlMs, int maxSize) {
+    this.idleTtlNanos = Math.max(1000, idleTtlMs) * 1_000_000L;
+    this.maxSize = Math.max(1, maxSize);
+  }
+
+  public static String key(String discoveryUrl, String bearerToken) {
+    String url = discoveryUrl == null ? "" : discoveryUrl.trim();
+    while (url.endsWith("/")) {
+      url = url.substring(0, url.length() - 1);
+    }
+    if (bearerToken == null || bearerToken.isBlank()) return url;
+    return url + "#" + sha256(bearerToken.trim()).substring(0, 16);
+  }
+
+  /**
+   * Sesión cacheada y vigente, o null.
+   */
+  public McpSession get(String key) {
+    Entry e = sessions.get(key);
+    if (e == null) return null;
+
+    long now = System.nanoTime();
+    if (now - e.lastUsed > idleTtlNanos) {
+      sessions.remove(key, e);
+      return null;
+    }
+    e.lastUsed = now;
+    return e.session;
+  }
+
+  public void put(String key, McpSession session) {
+    if (session == null) return;
+    sessions.put(key, new Entry(session));
+    if (sessions.size() > maxSize) evict();
+  }
+
+  public void invalidate(String key) {
+    sessions.remove(key);
+  }
+
+  public int size() {
+    return sessions.size();
+  }
+
+  private synchronized void evict() {
+    long now = System.nanoTime();
+    sessions.entrySet().removeIf(en -> now - en.getValue().lastUsed > idleTtlNanos);
+
+    while (sessions.size() > maxSize) {
+      Map.Entry<String, Entry> oldest = null;
+      for (Map.Entry<String, Entry> en : sessions.entrySet()) {
+        if (oldest == null || en.getValue().lastUsed < oldest.getValue().lastUsed) oldest = en;
+      }
+      if (oldest == null) break;
+      sessions.remove(oldest.getKey(), oldest.getValue());
+    }
+  }
+
+  private static String sha256(String v) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(v.getBytes(StandardCharsets.UTF_8)));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry {
+    private final McpSession session;
+    private volatile long lastUsed = System.nanoTime();
+
+    private Entry(McpSession session) {
+      this.session = session;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.bizmetry.registry.mcp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalescing de llamadas idénticas concurrentes ("single flight"): mientras una llamada con la
+ * misma key está en vuelo, los duplicados se cuelgan de ella y reciben su mismo resultado (o error)
+ * en vez de salir otra vez al server. Al terminar la key se libera: no es un cache.
+ *
+ * Solo debe usarse para llamadas sin efectos (tools/list, ping, tools read-only/idempotentes).
+ */
+public class McpSingleFlight {
+
+  private static final Logger log = LoggerFactory.getLogger(McpSingleFlight.class);
+
+  private final ObjectWriter canonicalWriter;
+  private final boolean enabled;
+
+  private final ConcurrentHashMap<String, Mono<Object>> inFlight = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightBlocking = new ConcurrentHashMap<>();
+
+  public McpSingleFlight(ObjectMapper mapper, boolean enabled) {
+    this.enabled = enabled;
+    // mismo args en distinto orden de claves -> misma key
+    this.canonicalWriter = mapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+  }
+
+  /**
+   * Key = scope (serverId / URL) + método + hash de los params canónicos + hash de la credencial
+   * (dos tokens distintos nunca comparten respuesta).
+   */
+  public String key(Object scope, String method, Object params, McpAuth auth) {
+    String fp = auth == null ? null : auth.fingerprint();
+    return scope + "|" + method + "|" + sha256(canonical(params)) + "|" + (fp == null ? "-" : sha256(fp));
+  }
+
+  /**
+   * Versión reactiva: el primero en llegar se suscribe a la llamada real; el resto comparte el Mono.
+   * Si todos los suscriptores cancelan, se cancela también la llamada.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> execute(String key, Supplier<Mono<T>> call) {
+    if (!enabled) return Mono.defer(call);
+
+    return Mono.defer(() -> {
+      AtomicReference<Mono<Object>> self = new AtomicReference<>();
+      Runnable release = () -> inFlight.remove(key, self.get());
+
+      // la key se libera antes de que los suscriptores reciban la señal terminal (doOnEach va antes
+      // del share): quien llegue después hace su propia llamada en vez de colgarse de una ya terminada
+      Mono<Object> mine = Mono.defer(call)
+          .cast(Object.class)
+          .doOnEach(signal -> release.run())
+          .doOnCancel(release)
+          .share();
+      self.set(mine);
+
+      Mono<Object> existing = inFlight.putIfAbsent(key, mine);
+      if (existing == null) return (Mono<T>) mine;
+
+      log.debug("[MCP][COALESCE] joined in-flight call key={}", key);
+      return (Mono<T>) existing;
+    });
+  }
+
+  /**
+   * Versión bloqueante (test connection): el primero ejecuta en su thread, el resto espera su resultado.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T executeBlocking(String key, Callable<T> call) {
+    if (!enabled) {
+      try {
+        return call.call();
+      } catch (Exception e) {
+        throw rethrow(e);
+      }
+    }
+
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlightBlocking.putIfAbsent(key, mine);
+
+    if (existing != null) {
+      log.debug("[MCP][COALESCE] joined in-flight call key={}", key);
+      try {
+        return (T) existing.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new McpClientException("Interrupted while waiting for MCP call", e);
+      } catch (ExecutionException e) {
+        throw rethrow(e.getCause());
+      }
+    }
+
+    try {
+      T value = call.call();
+      mine.complete(value);
+      return value;
+    } catch (Exception e) {
+      mine.completeExceptionally(e);
+      throw rethrow(e);
+    } finally {
+      inFlightBlocking.remove(key, mine);
+    }
+  }
+
+  private String canonical(Object params) {
+    if (params == null) return "";
+    try {
+      return canonicalWriter.writeValueAsString(params);
+    } catch (Exception e) {
+      return String.valueOf(params);
+    }
+  }
+
+  private static String sha256(String v) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(v.getBytes(StandardCharsets.UTF_8)));
+    } catch (Exception e) {
+      throw new IllegalStateException("Cannot hash MCP call key", e);
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+    if (t instanceof RuntimeException re) return re;
+    return new McpClientException(t.getMessage(), t);
+  }
+}
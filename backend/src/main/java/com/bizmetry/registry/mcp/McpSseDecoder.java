@@ -0,0 +1,146 @@
+package com.bizmetry.registry.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decoder SSE incremental (línea a línea) para respuestas MCP Streamable HTTP.
+ *
+ * Se alimenta con las líneas del body a medida que llegan ({@code BodyHandlers.ofLines} /
+ * {@code Flux<DataBuffer>} partido en líneas) y parsea cada evento una sola vez al cerrarse
+ * (línea vacía). Solo retiene el evento en curso y el último JSON válido, nunca el stream entero.
+ *
+ * No es thread-safe: una instancia por respuesta.
+ */
+public final class McpSseDecoder {
+
+  private final ObjectMapper mapper;
+  private final String expectedId;
+
+  private final StringBuilder data = new StringBuilder();
+  private JsonNode last;
+
+  /**
+   * @param expectedId id JSON-RPC del request (null = no filtrar por id)
+   */
+  public McpSseDecoder(ObjectMapper mapper, Object expectedId) {
+    this.mapper = mapper;
+    this.expectedId = expectedId == null ? null : String.valueOf(expectedId);
+  }
+
+  /**
+   * Consume una línea. Devuelve la respuesta JSON-RPC cuando llega la que corresponde al id
+   * esperado (el caller puede cortar el stream ahí); null mientras tanto.
+   */
+  public JsonNode onLine(String line) {
+    if (line == null) return null;
+
+    if (line.isBlank()) {
+      return dispatch();
+    }
+
+    append(line);
+    return null;
+  }
+
+  /**
+   * Modo streaming: devuelve cada mensaje JSON-RPC (notificaciones incluidas, p.ej.
+   * notifications/progress) apenas se cierra su evento; null mientras tanto. Con
+   * {@link #isResponse(JsonNode)} el caller sabe cuándo llegó la respuesta final.
+   */
+  public JsonNode onMessage(String line) {
+    if (line == null) return null;
+
+    if (line.isBlank()) {
+      return parsePending();
+    }
+
+    append(line);
+    return null;
+  }
+
+  /**
+   * Respuesta JSON-RPC (result/error) al id esperado; false para notificaciones y requests del server.
+   */
+  public boolean isResponse(JsonNode node) {
+    if (!node.has("result") && !node.has("error")) return false; // notificación / request del server
+    if (expectedId == null) return true;
+    JsonNode id = node.get("id");
+    return id != null && expectedId.equals(id.asText());
+  }
+
+  /**
+   * Fin del stream: despacha lo que quedó pendiente y devuelve la respuesta que matchea el id
+   * o, si no hubo ninguna, el último JSON válido recibido (comportamiento previo).
+   */
+  public JsonNode finish() {
+    JsonNode match = dispatch();
+    return match != null ? match : last;
+  }
+
+  /**
+   * Body ya bufferizado (respuestas chicas o sin content-type): mismo algoritmo, línea a línea.
+   */
+  public static JsonNode decode(ObjectMapper mapper, String body, Object expectedId) {
+    McpSseDecoder d = new McpSseDecoder(mapper, expectedId);
+    if (body == null) return null;
+
+    int from = 0;
+    int len = body.length();
+    while (from <= len) {
+      int nl = body.indexOf('\n', from);
+      int to = nl < 0 ? len : nl;
+      String line = body.substring(from, to > from && body.charAt(to - 1) == '\r' ? to - 1 : to);
+      JsonNode match = d.onLine(line);
+      if (match != null) return match;
+      if (nl < 0) break;
+      from = nl + 1;
+    }
+    return d.finish();
+  }
+
+  /**
+   * Heurística previa: algunos servers mandan SSE sin content-type correcto.
+   */
+  public static boolean looksLikeEventStream(String body) {
+    if (body == null) return false;
+    String t = body.stripLeading();
+    return t.startsWith("event:") || t.startsWith("data:") || t.startsWith("id:");
+  }
+
+  private void append(String line) {
+    if (line.startsWith("data:")) {
+      String chunk = line.substring("data:".length()).trim();
+      if (!chunk.isEmpty()) {
+        if (data.length() > 0) data.append('\n');
+        data.append(chunk);
+      }
+    }
+    // event:, id:, retry: y comentarios (":") no nos interesan
+  }
+
+  private JsonNode dispatch() {
+    JsonNode node = parsePending();
+    return (node != null && isResponse(node)) ? node : null;
+  }
+
+  private JsonNode parsePending() {
+    if (data.length() == 0) return null;
+
+    String candidate = data.toString();
+    data.setLength(0);
+
+    if (candidate.equals("[DONE]")) return null;
+
+    JsonNode node;
+    try {
+      node = mapper.readTree(candidate);
+    } catch (Exception ignore) {
+      return null;
+    }
+    if (node == null || node.isMissingNode()) return null;
+
+    last = node;
+    return node;
+  }
+}
@@ -0,0 +1,504 @@
+package com.bizmetry.registry.mcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transport MCP (Streamable HTTP) único: un WebClient (un pool de conexiones), un codec
+ * JSON/SSE, el cache de sesiones y auth pluggable ({@link McpAuth}).
+ *
+ * {@link HttpMcpClient} (test connection / registro) y {@code HttpMcpInvokeClient} (invoke + healthcheck)
+ * son fachadas finas sobre esta clase, así las conexiones y sesiones que abre un probe las reusa un invoke.
+ */
+public class McpTransport {
+
+  private static final Logger log = LoggerFactory.getLogger(McpTransport.class);
+
+  private static final String SESSION_HEADER = "mcp-session-id";
+  private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+  // dónde buscar el session id si el server no manda el header
+  private static final String[] SESSION_ID_PATHS = {
+      "sessionId", "session_id",
+      "session.id",
+      "transport.sessionId", "transport.session_id"
+  };
+
+  private final WebClient webClient;
+  private final ObjectMapper om;
+  private final McpSessionPool sessions;
+
+  // parte el body en líneas (\n / \r\n) sin acumularlo entero
+  private final StringDecoder lines = StringDecoder.allMimeTypes();
+
+  // ✅ pass-through: el "result" se copia como tokens (TokenBuffer) desde los bytes de upstream y
+  // Jackson lo vuelve a escribir tal cual en la respuesta HTTP, sin pasar por Map/List. No es
+  // streaming: el body se junta entero (hasta maxResultBytes) y en SSE el mensaje se lee como árbol.
+  private final boolean passThrough;
+  private final int maxResultBytes;
+
+  public McpTransport(WebClient webClient, ObjectMapper om, McpSessionPool sessions,
+      boolean passThrough, int maxResultBytes) {
+    this.webClient = webClient;
+    this.om = om;
+    this.sessions = sessions;
+    this.passThrough = passThrough;
+    this.maxResultBytes = Math.max(1024, maxResultBytes);
+    this.lines.setMaxInMemorySize(this.maxResultBytes); // un evento SSE = una línea data: (puede ser grande)
+  }
+
+  public ObjectMapper mapper() {
+    return om;
+  }
+
+  // ============================================================
+  // API
+  // ============================================================
+
+  /**
+   * Llamada JSON-RPC con sesión (cacheada o nueva). Devuelve el "result" (TokenBuffer/JsonNode en
+   * pass-through, Map/List si no). Si el server venció la sesión se re-inicializa y se reintenta una vez.
+   */
+  public Mono<Object> call(String endpoint, McpAuth auth, String method, Object params, Duration timeout) {
+    String target = endpoint.trim();
+    McpAuth a = auth != null ? auth : McpAuth.NONE;
+    String key = McpSessionPool.key(target, a.fingerprint());
+
+    // initialize explícito (probe de catálogo): handshake real, sin la sesión cacheada; la nueva
+    // sesión reemplaza a la anterior en el pool
+    if ("initialize".equals(method)) {
+      return handshake(target, a, timeout)
+          .doOnNext(s -> sessions.put(key, s))
+          .map(s -> om.convertValue(s.getInitializeResult(), Object.class));
+    }
+
+    return session(key, target, a, timeout).flatMap(session -> {
+      return exchange(target, a, method, params, session.getSessionId(), timeout)
+          // el server perdió/venció la sesión: re-handshake y un solo reintento
+          .onErrorResume(McpSessionExpiredException.class, expired -> {
+            sessions.invalidate(key);
+            return session(key, target, a, timeout)
+                .flatMap(fresh -> exchange(target, a, method, params, fresh.getSessionId(), timeout));
+          })
+          .doOnError(e -> {
+            // sin sesión real (el initialize había fallado): que el próximo call vuelva a intentar el handshake
+            if (session.getInitializeResult() == null) sessions.invalidate(key);
+          });
+    });
+  }
+
+  /**
+   * Variante streaming de {@link #call}: emite cada mensaje JSON-RPC que manda el server a medida que
+   * llega (notifications/progress, notifications/message, ...) y termina con la respuesta a nuestro id.
+   * Un error JSON-RPC se propaga como {@link McpClientException} (igual que en call).
+   *
+   * Pide progreso con params._meta.progressToken. El timeout es de inactividad: se reinicia con cada mensaje.
+   */
+  public Flux<JsonNode> stream(String endpoint, McpAuth auth, String method, Map<String, Object> params,
+      Duration idleTimeout) {
+    String target = endpoint.trim();
+    McpAuth a = auth != null ? auth : McpAuth.NONE;
+    String key = McpSessionPool.key(target, a.fingerprint());
+
+    return session(key, target, a, idleTimeout).flatMapMany(session ->
+        streamExchange(target, a, method, params, session.getSessionId(), idleTimeout)
+            // la sesión venció: el 404 llega antes de cualquier evento, así que reintentar es seguro
+            .onErrorResume(McpSessionExpiredException.class, expired -> {
+              sessions.invalidate(key);
+              return session(key, target, a, idleTimeout)
+                  .flatMapMany(fresh -> streamExchange(target, a, method, params, fresh.getSessionId(), idleTimeout));
+            }));
+  }
+
+  /**
+   * initialize estricto (test connection): reusa la sesión cacheada o hace el handshake y
+   * propaga el error si falla.
+   */
+  public Mono<McpSession> initialize(String endpoint, McpAuth auth, Duration timeout) {
+    String target = endpoint.trim();
+    McpAuth a = auth != null ? auth : McpAuth.NONE;
+    String key = McpSessionPool.key(target, a.fingerprint());
+
+    return Mono.defer(() -> {
+      McpSession cached = sessions.get(key);
+      if (cached != null && cached.getInitializeResult() != null) return Mono.just(cached);
+      return handshake(target, a, timeout).doOnNext(s -> sessions.put(key, s));
+    });
+  }
+
+  /**
+   * Cachea una sesión también bajo otra URL (p.ej. la discovery URL original cuando se resolvió con el otro scheme).
+   */
+  public void alias(String endpoint, McpAuth auth, McpSession session) {
+    McpAuth a = auth != null ? auth : McpAuth.NONE;
+    sessions.put(McpSessionPool.key(endpoint, a.fingerprint()), session);
+  }
+
+  public McpSession cached(String endpoint, McpAuth auth) {
+    McpAuth a = auth != null ? auth : McpAuth.NONE;
+    return sessions.get(McpSessionPool.key(endpoint, a.fingerprint()));
+  }
+
+  // ============================================================
+  // sesiones
+  // ============================================================
+
+  private Mono<McpSession> session(String key, String endpoint, McpAuth auth, Duration timeout) {
+    return Mono.defer(() -> {
+      McpSession cached = sessions.get(key);
+      if (cached != null) return Mono.just(cached);
+
+      // si el server no soporta initialize por HTTP seguimos sin sesión (como antes);
+      // igual queda cacheado para no reintentar en cada call
+      return handshake(endpoint, auth, timeout)
+          .onErrorResume(e -> {
+            log.debug("[MCP] initialize failed on {}, continuing without session: {}", endpoint, e.getMessage());
+            return Mono.just(new McpSession(endpoint, null, null));
+          })
+          .doOnNext(s -> sessions.put(key, s));
+    });
+  }
+
+  /**
+   * initialize + notifications/initialized.
+   */
+  private Mono<McpSession> handshake(String endpoint, McpAuth auth, Duration timeout) {
+    ObjectNode init = McpJsonRpc.initialize(om);
+    Object initId = init.path("id").asText();
+
+    return post(endpoint, auth, null)
+        .bodyValue(init)
+        .exchangeToMono(resp -> {
+          String sid = resp.headers().asHttpHeaders().getFirst(SESSION_HEADER);
+          return handleResponse(resp, endpoint, null, initId)
+              .map(result -> {
+                JsonNode tree = om.valueToTree(result);
+                return new McpSession(endpoint, sid != null && !sid.isBlank() ? sid : sessionIdFrom(tree), tree);
+              });
+        })
+        .switchIfEmpty(Mono.error(() -> new McpClientException("MCP initialize failed: empty result from " + endpoint)))
+        .timeout(timeout)
+        .flatMap(session -> post(endpoint, auth, session.getSessionId())
+            .bodyValue(McpJsonRpc.initializedNotification(om))
+            .retrieve()
+            .toBodilessEntity()
+            .timeout(timeout)
+            .onErrorResume(e -> Mono.empty()) // best effort: hay servers que no la esperan
+            .thenReturn(session));
+  }
+
+  private String sessionIdFrom(JsonNode initResult) {
+    for (String path : SESSION_ID_PATHS) {
+      JsonNode cur = initResult;
+      for (String part : path.split("\\.")) {
+        cur = cur == null ? null : cur.path(part);
+      }
+      if (cur != null && cur.isTextual() && !cur.asText().isBlank()) return cur.asText();
+    }
+    return null;
+  }
+
+  // ============================================================
+  // HTTP
+  // ============================================================
+
+  private Mono<Object> exchange(String endpoint, McpAuth auth, String method, Object params,
+      String sessionId, Duration timeout) {
+
+    long id = System.nanoTime();
+
+    Map<String, Object> body = Map.of(
+        "jsonrpc", "2.0",
+        "id", id,
+        "method", method,
+        "params", (params != null ? params : Map.of())
+    );
+
+    return post(endpoint, auth, sessionId)
+        .bodyValue(body)
+        .exchangeToMono(resp -> handleResponse(resp, endpoint, sessionId, id))
+        .timeout(timeout);
+  }
+
+  private Flux<JsonNode> streamExchange(String endpoint, McpAuth auth, String method, Map<String, Object> params,
+      String sessionId, Duration idleTimeout) {
+
+    long id = System.nanoTime();
+
+    Map<String, Object> p = new LinkedHashMap<>(params != null ? params : Map.of());
+    p.put("_meta", Map.of("progressToken", String.valueOf(id)));
+
+    Map<String, Object> body = Map.of(
+        "jsonrpc", "2.0",
+        "id", id,
+        "method", method,
+        "params", p
+    );
+
+    return post(endpoint, auth, sessionId)
+        .bodyValue(body)
+        .exchangeToFlux(resp -> handleStream(resp, endpoint, sessionId, id))
+        .timeout(idleTimeout);
+  }
+
+  private WebClient.RequestBodySpec post(String endpoint, McpAuth auth, String sessionId) {
+    return webClient.post()
+        .uri(endpoint)
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON, MediaType.TEXT_EVENT_STREAM) // ✅ evita 406 en servers SSE
+        .headers(h -> {
+          h.setCacheControl("no-cache");
+          auth.apply(h);
+          if (sessionId != null) h.set(SESSION_HEADER, sessionId);
+        });
+  }
+
+  // ============================================================
+  // codec
+  // ============================================================
+
+  private Mono<Object> handleResponse(ClientResponse resp, String endpoint, String sessionId, Object requestId) {
+
+    int status = resp.statusCode().value();
+    MediaType ct = resp.headers().contentType().orElse(null);
+
+    if (status < 200 || status >= 300) {
+      return httpError(resp, status, endpoint, sessionId);
+    }
+
+    if (ct != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(ct)) {
+      // ✅ SSE incremental: línea a línea, cortamos (y liberamos la conexión) apenas llega nuestro id
+      McpSseDecoder sse = new McpSseDecoder(om, requestId);
+      Flux<String> body = lines.decode(resp.bodyToFlux(DataBuffer.class), STRING_TYPE, null, null);
+
+      return body
+          .<JsonNode>handle((line, sink) -> {
+            JsonNode msg = sse.onLine(line);
+            if (msg != null) sink.next(msg);
+          })
+          .next()
+          .switchIfEmpty(Mono.fromSupplier(sse::finish))
+          .switchIfEmpty(Mono.error(() -> new McpClientException(
+              "SSE response received but no JSON payload found from " + endpoint)))
+          .flatMap(this::toResult);
+    }
+
+    // JSON: juntamos los bytes (acotado a maxResultBytes) y los recorremos con el parser de streaming
+    return DataBufferUtils.join(resp.bodyToFlux(DataBuffer.class), maxResultBytes)
+        .onErrorMap(DataBufferLimitException.class, e -> new McpClientException(
+            "MCP response from " + endpoint + " exceeds " + maxResultBytes + " bytes"))
+        .flatMap(buf -> {
+          try {
+            return Mono.justOrEmpty(readJsonRpc(buf, endpoint, requestId));
+          } catch (RuntimeException e) {
+            return Mono.error(e);
+          } catch (Exception e) {
+            return Mono.error(new McpClientException("Unable to parse MCP response from " + endpoint + ": "
+                + e.getMessage(), e));
+          } finally {
+            DataBufferUtils.release(buf);
+          }
+        });
+  }
+
+  private Flux<JsonNode> handleStream(ClientResponse resp, String endpoint, String sessionId, Object requestId) {
+
+    int status = resp.statusCode().value();
+    MediaType ct = resp.headers().contentType().orElse(null);
+
+    if (status < 200 || status >= 300) {
+      return this.<JsonNode>httpError(resp, status, endpoint, sessionId).flux();
+    }
+
+    if (ct != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(ct)) {
+      // ✅ cada evento SSE sale apenas se cierra; cortamos al llegar la respuesta a nuestro id
+      McpSseDecoder sse = new McpSseDecoder(om, requestId);
+      Flux<String> body = lines.decode(resp.bodyToFlux(DataBuffer.class), STRING_TYPE, null, null);
+
+      return body
+          .concatWithValues("") // EOF: despacha el último evento si no terminó con línea vacía
+          .<JsonNode>handle((line, sink) -> {
+            JsonNode msg = sse.onMessage(line);
+            if (msg != null) sink.next(msg);
+          })
+          .takeUntil(sse::isResponse)
+          .concatMap(msg -> sse.isResponse(msg) && msg.has("error")
+              ? Flux.<JsonNode>error(rpcError(msg.get("error")))
+              : Flux.just(msg));
+    }
+
+    // JSON: un único mensaje (la respuesta), acotado a maxResultBytes
+    return DataBufferUtils.join(resp.bodyToFlux(DataBuffer.class), maxResultBytes)
+        .onErrorMap(DataBufferLimitException.class, e -> new McpClientException(
+            "MCP response from " + endpoint + " exceeds " + maxResultBytes + " bytes"))
+        .flatMap(buf -> {
+          try {
+            JsonNode msg = looksLikeEventStream(buf)
+                ? McpSseDecoder.decode(om, buf.toString(StandardCharsets.UTF_8), requestId)
+                : om.readTree(buf.asInputStream());
+            if (msg != null && msg.has("error")) {
+              return Mono.error(rpcError(msg.get("error")));
+            }
+            return Mono.justOrEmpty(msg);
+          } catch (IOException e) {
+            return Mono.error(new McpClientException("Unable to parse MCP response from " + endpoint + ": "
+                + e.getMessage(), e));
+          } finally {
+            DataBufferUtils.release(buf);
+          }
+        })
+        .flux();
+  }
+
+  private <T> Mono<T> httpError(ClientResponse resp, int status, String endpoint, String sessionId) {
+    return resp.bodyToMono(String.class).defaultIfEmpty("")
+        .flatMap(raw -> {
+          if (sessionId != null && isSessionExpired(status, raw)) {
+            return Mono.error(new McpSessionExpiredException(
+                "MCP session expired (HTTP " + status + ") from POST " + endpoint));
+          }
+          return Mono.error(new McpClientException("HTTP " + status + " from POST " + endpoint + " -> " + truncate(raw)));
+        });
+  }
+
+  /**
+   * Streamable HTTP: un session id desconocido/vencido responde 404 (algunos servers usan 400 + mensaje).
+   */
+  static boolean isSessionExpired(int status, String body) {
+    if (status == 404) return true;
+    return status == 400 && body != null && body.toLowerCase().contains("session");
+  }
+
+  /**
+   * Recorre el sobre JSON-RPC token a token: copia solo el subárbol "result" (TokenBuffer),
+   * el "error" se lee como árbol (es chico) y el resto se saltea.
+   */
+  private Object readJsonRpc(DataBuffer buf, String endpoint, Object requestId) throws IOException {
+    if (looksLikeEventStream(buf)) {
+      // algunos servers mandan SSE sin content-type correcto
+      String raw = buf.toString(StandardCharsets.UTF_8);
+      JsonNode msg = McpSseDecoder.decode(om, raw, requestId);
+      if (msg == null) {
+        throw new McpClientException("SSE response received but no JSON payload found from "
+            + endpoint + " -> " + truncate(raw));
+      }
+      return resultOf(msg);
+    }
+
+    try (InputStream in = buf.asInputStream(); JsonParser p = om.getFactory().createParser(in)) {
+      JsonToken t = p.nextToken();
+      if (t == null) return null;
+      if (t != JsonToken.START_OBJECT) {
+        return passThrough ? copyValue(p) : om.readValue(p, Object.class);
+      }
+
+      TokenBuffer result = null;
+      boolean hasResult = false;
+      JsonNode error = null;
+      ObjectNode other = om.createObjectNode();
+
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.currentName();
+        p.nextToken();
+
+        if ("result".equals(field)) {
+          hasResult = true;
+          result = copyValue(p);
+        } else if ("error".equals(field)) {
+          error = om.readTree(p);
+        } else {
+          other.set(field, om.readTree(p));
+        }
+      }
+
+      if (hasResult) {
+        if (result == null || result.firstToken() == JsonToken.VALUE_NULL) return null;
+        return passThrough ? result : om.readValue(result.asParser(), Object.class);
+      }
+
+      if (error != null) {
+        throw rpcError(error);
+      }
+
+      return om.convertValue(other, Object.class);
+    }
+  }
+
+  // copia el valor actual (escalar o subárbol completo) como tokens
+  private static TokenBuffer copyValue(JsonParser p) throws IOException {
+    TokenBuffer copy = new TokenBuffer(p);
+    copy.copyCurrentStructure(p);
+    return copy;
+  }
+
+  private static boolean looksLikeEventStream(DataBuffer buf) {
+    int start = buf.readPosition();
+    int end = buf.writePosition();
+    for (int i = start; i < end; i++) {
+      byte b = buf.getByte(i);
+      if (b == ' ' || b == '\t' || b == '\r' || b == '\n') continue;
+      return b != '{' && b != '[';
+    }
+    return false;
+  }
+
+  private Mono<Object> toResult(JsonNode msg) {
+    try {
+      return Mono.justOrEmpty(resultOf(msg));
+    } catch (RuntimeException e) {
+      return Mono.error(e);
+    }
+  }
+
+  private Object resultOf(JsonNode msg) {
+    if (msg == null || msg.isMissingNode() || msg.isNull()) return null;
+
+    if (msg.has("result")) {
+      JsonNode result = msg.get("result");
+      if (result.isNull()) return null;
+      // pass-through: el JsonNode ya parseado se serializa directo (sin copiar a Map/List)
+      return passThrough ? result : om.convertValue(result, Object.class);
+    }
+
+    if (msg.has("error")) {
+      throw rpcError(msg.get("error"));
+    }
+
+    return om.convertValue(msg, Object.class);
+  }
+
+  private McpRpcException rpcError(JsonNode error) {
+    return new McpRpcException(error.path("code").asInt(0), String.valueOf(om.convertValue(error, Object.class)));
+  }
+
+  private String truncate(String s) {
+    if (s == null) return "";
+    return s.length() > 800 ? s.substring(0, 800) + "..." : s;
+  }
+}
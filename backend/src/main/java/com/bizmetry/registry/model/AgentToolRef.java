@@ -0,0 +1,86 @@
+package com.bizmetry.registry.model;
+
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Índice relacional agente -> tool: una fila por (agent_id, server_id, tool_name).
+ *
+ * Es una proyección de agents.metadata.tools (la mantiene {@code AgentToolRefService} en cada
+ * alta/edición/registro/import de agentes) para resolver "qué agentes usan el server/tool X"
+ * sin recorrer ni deserializar todos los agentes.
+ */
+@Entity
+@Table(name = "agent_tool_refs", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_agent_tool_refs_agent_server_tool", columnNames = {"agent_id", "server_id", "tool_name"})
+}, indexes = {
+    @Index(name = "idx_agent_tool_refs_server_tool", columnList = "server_id, tool_name")
+})
+public class AgentToolRef {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  @Column(name = "ref_id")
+  private UUID refId;
+
+  @Column(name = "agent_id", nullable = false)
+  private UUID agentId;
+
+  @Column(name = "server_id", nullable = false)
+  private UUID serverId;
+
+  @Column(name = "tool_name", nullable = false, length = 256)
+  private String toolName;
+
+  public AgentToolRef() {}
+
+  public AgentToolRef(UUID agentId, UUID serverId, String toolName) {
+    this.agentId = agentId;
+    this.serverId = serverId;
+    this.toolName = toolName;
+  }
+
+  // ---------------------------
+  // Getters & setters
+  // ---------------------------
+
+  public UUID getRefId() {
+    return refId;
+  }
+
+  public void setRefId(UUID refId) {
+    this.refId = refId;
+  }
+
+  public UUID getAgentId() {
+    return agentId;
+  }
+
+  public void setAgentId(UUID agentId) {
+    this.agentId = agentId;
+  }
+
+  public UUID getServerId() {
+    return serverId;
+  }
+
+  public void setServerId(UUID serverId) {
+    this.serverId = serverId;
+  }
+
+  public String getToolName() {
+    return toolName;
+  }
+
+  public void setToolName(String toolName) {
+    this.toolName = toolName;
+  }
+}
@@ -61,6 +61,13 @@ public class McpServer {
   @Column(name = "status", nullable = false, length = 32)
   private McpServerStatus status = McpServerStatus.ACTIVE;
 
+  @Column(name = "last_tools_refresh_ts")
+  private Instant lastToolsRefreshTs;
+
+  // SHA-256 de las tools normalizadas (ver McpToolNormalizer.hash). null = desconocido.
+  @Column(name = "tools_hash", length = 64)
+  private String toolsHash;
+
   public McpServer() {}
 
   @PreUpdate
@@ -117,6 +124,8 @@ public class McpServer {
   }
   public void setServerDoc(JsonNode serverDoc) {
     this.serverDoc = serverDoc;
+    // doc nuevo => ya no sabemos si las tools coinciden con el último probe
+    this.toolsHash = null;
   }
 
   public Instant getCreatedTs() {
@@ -133,4 +142,18 @@ public class McpServer {
   public void setStatus(McpServerStatus status) {
     this.status = status;
   }
+
+  public Instant getLastToolsRefreshTs() {
+    return lastToolsRefreshTs;
+  }
+  public void setLastToolsRefreshTs(Instant lastToolsRefreshTs) {
+    this.lastToolsRefreshTs = lastToolsRefreshTs;
+  }
+
+  public String getToolsHash() {
+    return toolsHash;
+  }
+  public void setToolsHash(String toolsHash) {
+    this.toolsHash = toolsHash;
+  }
 }
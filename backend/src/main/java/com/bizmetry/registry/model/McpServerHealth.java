@@ -0,0 +1,123 @@
+package com.bizmetry.registry.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Estado de health de cada MCP server: una fila chica por server.
+ *
+ * Lo escribe el healthcheck en batch ({@code McpHealthWriteBehind}), así los probes
+ * no tocan la fila de mcp_servers (con su server_doc de varios KB).
+ */
+@Entity
+@Table(name = "mcp_server_health", indexes = {
+    @Index(name = "idx_mcp_server_health_next_probe_ts", columnList = "next_probe_ts")
+})
+public class McpServerHealth {
+
+  @Id
+  @Column(name = "server_id")
+  private UUID serverId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", nullable = false, length = 32)
+  private McpServerStatus status;
+
+  @Column(name = "last_probe_ts")
+  private Instant lastProbeTs;
+
+  @Column(name = "last_error", length = 2000)
+  private String lastError;
+
+  @Column(name = "latency_ms")
+  private Long latencyMs;
+
+  @Column(name = "consecutive_failures", nullable = false)
+  private int consecutiveFailures;
+
+  @Column(name = "consecutive_successes", nullable = false)
+  private int consecutiveSuccesses;
+
+  // Agenda del próximo probe (ver McpProbeSchedulePolicy). Sin fila = nunca probeado.
+  @Column(name = "next_probe_ts")
+  private Instant nextProbeTs;
+
+  // Último tools/list completo OK (probe de catálogo); los probes de liveness no lo tocan.
+  @Column(name = "last_catalog_ts")
+  private Instant lastCatalogTs;
+
+  public McpServerHealth() {}
+
+  public McpServerHealth(UUID serverId) {
+    this.serverId = serverId;
+  }
+
+  public UUID getServerId() {
+    return serverId;
+  }
+
+  public McpServerStatus getStatus() {
+    return status;
+  }
+  public void setStatus(McpServerStatus status) {
+    this.status = status;
+  }
+
+  public Instant getLastProbeTs() {
+    return lastProbeTs;
+  }
+  public void setLastProbeTs(Instant lastProbeTs) {
+    this.lastProbeTs = lastProbeTs;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public Long getLatencyMs() {
+    return latencyMs;
+  }
+  public void setLatencyMs(Long latencyMs) {
+    this.latencyMs = latencyMs;
+  }
+
+  public int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+  public void setConsecutiveFailures(int consecutiveFailures) {
+    this.consecutiveFailures = consecutiveFailures;
+  }
+
+  public int getConsecutiveSuccesses() {
+    return consecutiveSuccesses;
+  }
+  public void setConsecutiveSuccesses(int consecutiveSuccesses) {
+    this.consecutiveSuccesses = consecutiveSuccesses;
+  }
+
+  public Instant getNextProbeTs() {
+    return nextProbeTs;
+  }
+  public void setNextProbeTs(Instant nextProbeTs) {
+    this.nextProbeTs = nextProbeTs;
+  }
+
+  public Instant getLastCatalogTs() {
+    return lastCatalogTs;
+  }
+
+  public void setLastCatalogTs(Instant lastCatalogTs) {
+    this.lastCatalogTs = lastCatalogTs;
+  }
+}
@@ -0,0 +1,131 @@
+package com.bizmetry.registry.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Catálogo normalizado de tools: una fila por (server_id, name).
+ *
+ * Es una proyección de server_doc.tools para poder resolver existencia y
+ * búsquedas de tools con queries indexadas. El índice trigram sobre lower(name)
+ * lo crea {@code McpToolCatalogInitializer} (JPA no sabe declarar GIN).
+ */
+@Entity
+@Table(name = "mcp_server_tools", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_mcp_server_tools_server_name", columnNames = {"server_id", "name"})
+}, indexes = {
+    @Index(name = "idx_mcp_server_tools_name", columnList = "name")
+})
+public class McpServerTool {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  @Column(name = "tool_id")
+  private UUID toolId;
+
+  @Column(name = "server_id", nullable = false)
+  private UUID serverId;
+
+  @Column(nullable = false, length = 256)
+  private String name;
+
+  @Column(length = 4000)
+  private String description;
+
+  @Column(length = 64)
+  private String version;
+
+  @JdbcTypeCode(SqlTypes.JSON)
+  @Column(name = "arguments", columnDefinition = "jsonb")
+  private JsonNode arguments;
+
+  @JdbcTypeCode(SqlTypes.JSON)
+  @Column(name = "annotations", columnDefinition = "jsonb")
+  private JsonNode annotations;
+
+  // TTL del cache de resultados (opt-in del operador); null = no se cachea
+  @Column(name = "cache_ttl_seconds")
+  private Integer cacheTtlSeconds;
+
+  @Column(name = "updated_ts", nullable = false)
+  private Instant updatedTs = Instant.now();
+
+  public McpServerTool() {}
+
+  public McpServerTool(UUID serverId, String name) {
+    this.serverId = serverId;
+    this.name = name;
+  }
+
+  // ---------------------------
+  // Getters & setters
+  // ---------------------------
+
+  public UUID getToolId() {
+    return toolId;
+  }
+
+  public UUID getServerId() {
+    return serverId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+  public void setVersion(String version) {
+    this.version = version;
+  }
+
+  public JsonNode getArguments() {
+    return arguments;
+  }
+  public void setArguments(JsonNode arguments) {
+    this.arguments = arguments;
+  }
+
+  public JsonNode getAnnotations() {
+    return annotations;
+  }
+  public void setAnnotations(JsonNode annotations) {
+    this.annotations = annotations;
+  }
+
+  public Integer getCacheTtlSeconds() {
+    return cacheTtlSeconds;
+  }
+  public void setCacheTtlSeconds(Integer cacheTtlSeconds) {
+    this.cacheTtlSeconds = cacheTtlSeconds;
+  }
+
+  public Instant getUpdatedTs() {
+    return updatedTs;
+  }
+  public void setUpdatedTs(Instant updatedTs) {
+    this.updatedTs = updatedTs;
+  }
+}
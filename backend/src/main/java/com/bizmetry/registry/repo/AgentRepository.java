@@ -1,11 +1,17 @@
 package com.bizmetry.registry.repo;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.bizmetry.registry.model.Agent;
 import com.bizmetry.registry.model.AgentStatus;
@@ -18,4 +24,10 @@ public interface AgentRepository extends JpaRepository<Agent, UUID> {
 
     // Método para encontrar agentes cuyo estado no sea el especificado
     List<Agent> findByStatusNot(AgentStatus status);
+
+    // ✅ solo la columna status: el healthcheck no pisa ediciones concurrentes del resto del agente
+    @Modifying
+    @Transactional
+    @Query("update Agent a set a.status = :status, a.updatedTs = :ts where a.agentId in :ids")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("status") AgentStatus status, @Param("ts") Instant ts);
 }
@@ -0,0 +1,30 @@
+package com.bizmetry.registry.repo;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.bizmetry.registry.model.AgentToolRef;
+
+public interface AgentToolRefRepository extends JpaRepository<AgentToolRef, UUID> {
+
+  // ✅ agentes que usan el server (usa idx_agent_tool_refs_server_tool)
+  @Query("select distinct r.agentId from AgentToolRef r where r.serverId = :serverId")
+  List<UUID> findAgentIdsByServerId(@Param("serverId") UUID serverId);
+
+  // ✅ agentes que usan una tool puntual del server: match exacto, como el catálogo (usa idx_agent_tool_refs_server_tool)
+  @Query("select distinct r.agentId from AgentToolRef r where r.serverId = :serverId and r.toolName = :toolName")
+  List<UUID> findAgentIdsByServerIdAndToolName(@Param("serverId") UUID serverId, @Param("toolName") String toolName);
+
+  @Modifying
+  @Query("delete from AgentToolRef r where r.agentId = :agentId")
+  int deleteByAgentId(@Param("agentId") UUID agentId);
+
+  @Modifying
+  @Query("delete from AgentToolRef r where r.serverId = :serverId")
+  int deleteByServerId(@Param("serverId") UUID serverId);
+}
@@ -0,0 +1,84 @@
+package com.bizmetry.registry.repo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.bizmetry.registry.model.McpServer;
+
+/**
+ * Cursor keyset para el listado de MCP Servers: (valor de la columna de sort, server_id).
+ *
+ * Se serializa como base64url opaco para que el cliente solo lo devuelva tal cual.
+ */
+public final class McpServerCursor {
+
+  private final Instant tsValue;
+  private final String textValue;
+  private final UUID serverId;
+
+  private McpServerCursor(Instant tsValue, String textValue, UUID serverId) {
+    this.tsValue = tsValue;
+    this.textValue = textValue;
+    this.serverId = serverId;
+  }
+
+  /**
+   * Construye el cursor a partir del último server de una página.
+   */
+  public static McpServerCursor of(McpServer s, String sortBy) {
+    switch (sortBy) {
+      case "name":
+        return new McpServerCursor(null, s.getName() == null ? "" : s.getName().toLowerCase(), s.getServerId());
+      case "createdTs":
+        return new McpServerCursor(s.getCreatedTs(), null, s.getServerId());
+      case "updatedTs":
+      default:
+        return new McpServerCursor(s.getUpdatedTs(), null, s.getServerId());
+    }
+  }
+
+  public Instant getTsValue() { return tsValue; }
+  public String getTextValue() { return textValue; }
+  public UUID getServerId() { return serverId; }
+
+  public String encode() {
+    String raw = (tsValue != null)
+        ? "t:" + tsValue.getEpochSecond() + "." + tsValue.getNano() + "|" + serverId
+        : "s:" + serverId + "|" + textValue;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws IllegalArgumentException si el cursor no es válido
+   */
+  public static McpServerCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+
+      if (raw.startsWith("t:")) {
+        String[] parts = raw.substring(2).split("\\|", 2);
+        String[] ts = parts[0].split("\\.", 2);
+        Instant value = Instant.ofEpochSecond(Long.parseLong(ts[0]), Long.parseLong(ts[1]));
+        return new McpServerCursor(value, null, UUID.fromString(parts[1]));
+      }
+
+      if (raw.startsWith("s:")) {
+        // el nombre puede contener '|', por eso el UUID va primero
+        String[] parts = raw.substring(2).split("\\|", 2);
+        return new McpServerCursor(null, parts[1], UUID.fromString(parts[0]));
+      }
+    } catch (Exception ignore) {
+      // cae al throw de abajo
+    }
+    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+  }
+
+  /**
+   * Un cursor de timestamp no sirve para un sort por nombre (y viceversa).
+   */
+  public boolean matches(String sortBy) {
+    return "name".equals(sortBy) ? textValue != null : tsValue != null;
+  }
+}
@@ -0,0 +1,11 @@
+package com.bizmetry.registry.repo;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.bizmetry.registry.model.McpServerHealth;
+
+// ✅ solo lectura en la práctica: las escrituras van en batch por McpHealthWriteBehind
+public interface McpServerHealthRepository extends JpaRepository<McpServerHealth, UUID> {
+}
@@ -1,19 +1,42 @@
 package com.bizmetry.registry.repo;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bizmetry.registry.model.McpServer;
 import com.bizmetry.registry.model.McpServerStatus;
 
-public interface McpServerRepository extends JpaRepository<McpServer, UUID> {
+public interface McpServerRepository extends JpaRepository<McpServer, UUID>, McpServerRepositoryCustom {
 
-  // ✅ usado por healthcheck job
   List<McpServer> findByStatusNot(McpServerStatus status);
 
+  // ✅ usado por healthcheck job: cola de servers cuyo próximo probe ya venció
+  // (agenda en mcp_server_health; sin fila = nunca probeado)
+  @Query("select s from McpServer s left join McpServerHealth h on h.serverId = s.serverId"
+      + " where s.status <> :excluded"
+      + " and (h.nextProbeTs is null or h.nextProbeTs <= :now)"
+      + " order by h.nextProbeTs asc nulls first")
+  List<McpServer> findDueForProbe(@Param("excluded") McpServerStatus excluded, @Param("now") Instant now,
+      Pageable pageable);
+
+  // ✅ usado por agent healthcheck: status de todos los servers referenciados en una sola query
+  @Query("select s.serverId as serverId, s.status as status from McpServer s where s.serverId in :ids")
+  List<ServerStatusView> findStatusesByServerIdIn(@Param("ids") Collection<UUID> ids);
+
+  interface ServerStatusView {
+    UUID getServerId();
+
+    McpServerStatus getStatus();
+  }
+
   // ✅ usado por import (upsert por unique constraint name+version)
   Optional<McpServer> findByNameAndVersion(String name, String version);
 
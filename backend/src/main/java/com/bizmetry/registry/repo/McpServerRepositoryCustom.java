@@ -0,0 +1,23 @@
+package com.bizmetry.registry.repo;
+
+import java.util.List;
+
+import com.bizmetry.registry.model.McpServer;
+
+/**
+ * Queries de MCP Servers que necesitan SQL nativo (search sobre tools + keyset).
+ */
+public interface McpServerRepositoryCustom {
+
+  /**
+   * Search + sort + paginado resuelto en Postgres.
+   *
+   * @param term    texto a buscar (lowercase) en server name o tools[].name; null = sin filtro
+   * @param sortBy  "updatedTs" | "createdTs" | "name"
+   * @param asc     dirección del sort
+   * @param after   cursor keyset (posición del último item de la página anterior); null = desde el inicio
+   * @param offset  offset clásico (solo si no hay cursor); null = 0
+   * @param limit   cantidad máxima de filas; null = sin límite
+   */
+  List<McpServer> search(String term, String sortBy, boolean asc, McpServerCursor after, Integer offset, Integer limit);
+}
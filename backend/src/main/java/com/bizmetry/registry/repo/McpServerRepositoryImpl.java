@@ -0,0 +1,85 @@
+package com.bizmetry.registry.repo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bizmetry.registry.model.McpServer;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+/**
+ * Implementación (fragment de Spring Data) de {@link McpServerRepositoryCustom}.
+ */
+public class McpServerRepositoryImpl implements McpServerRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<McpServer> search(String term, String sortBy, boolean asc, McpServerCursor after, Integer offset,
+      Integer limit) {
+
+    String sortCol = sortColumn(sortBy);
+    String dir = asc ? "ASC" : "DESC";
+
+    StringBuilder sql = new StringBuilder("SELECT s.* FROM mcp_servers s WHERE 1 = 1");
+    Map<String, Object> params = new LinkedHashMap<>();
+
+    // ✅ 1) FILTRO por server.name o tool name (catálogo mcp_server_tools, índices trigram)
+    if (term != null) {
+      sql.append(" AND (lower(s.name) LIKE :pattern ESCAPE '\\'")
+          .append(" OR EXISTS (SELECT 1 FROM mcp_server_tools t")
+          .append(" WHERE t.server_id = s.server_id AND lower(t.name) LIKE :pattern ESCAPE '\\'))");
+      params.put("pattern", "%" + escapeLike(term) + "%");
+    }
+
+    // ✅ 2) KEYSET: (sortCol, server_id) estrictamente después del cursor
+    if (after != null) {
+      sql.append(" AND (").append(sortCol).append(", s.server_id) ")
+          .append(asc ? ">" : "<")
+          .append(" (:afterValue, :afterId)");
+      params.put("afterValue", "name".equals(sortBy) ? after.getTextValue() : after.getTsValue());
+      params.put("afterId", after.getServerId());
+    }
+
+    // ✅ 3) SORT estable (server_id desempata)
+    sql.append(" ORDER BY ").append(sortCol).append(" ").append(dir)
+        .append(", s.server_id ").append(dir);
+
+    if (limit != null) {
+      sql.append(" LIMIT :limit");
+      params.put("limit", limit);
+    }
+    if (after == null && offset != null && offset > 0) {
+      sql.append(" OFFSET :offset");
+      params.put("offset", offset);
+    }
+
+    Query q = em.createNativeQuery(sql.toString(), McpServer.class);
+    params.forEach(q::setParameter);
+    return q.getResultList();
+  }
+
+  /**
+   * Allowlist de columnas de sort (nunca concatenamos input del usuario).
+   */
+  private String sortColumn(String sortBy) {
+    switch (sortBy == null ? "" : sortBy) {
+      case "name":
+        return "lower(s.name)";
+      case "createdTs":
+        return "s.created_ts";
+      case "updatedTs":
+      default:
+        return "s.updated_ts";
+    }
+  }
+
+  private String escapeLike(String term) {
+    return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
@@ -0,0 +1,44 @@
+package com.bizmetry.registry.repo;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.bizmetry.registry.model.McpServerTool;
+
+public interface McpServerToolRepository extends JpaRepository<McpServerTool, UUID> {
+
+  List<McpServerTool> findByServerId(UUID serverId);
+
+  // ✅ existencia exacta: usa uk_mcp_server_tools_server_name
+  boolean existsByServerIdAndName(UUID serverId, String name);
+
+  // ✅ fallback case-insensitive: usa idx_mcp_server_tools_server_lname
+  @Query("select count(t) > 0 from McpServerTool t where t.serverId = :serverId and lower(t.name) = lower(:name)")
+  boolean existsByServerIdAndNameIgnoreCase(@Param("serverId") UUID serverId, @Param("name") String name);
+
+  // ✅ fila de la tool (invoke: existencia + annotations en una sola query)
+  Optional<McpServerTool> findByServerIdAndName(UUID serverId, String name);
+
+  @Query("select t from McpServerTool t where t.serverId = :serverId and lower(t.name) = lower(:name)")
+  List<McpServerTool> findByServerIdAndNameIgnoreCase(@Param("serverId") UUID serverId, @Param("name") String name);
+
+  // ✅ vista agregada de tools (ToolViewService)
+  Page<McpServerTool> findAllByOrderByNameAscVersionAsc(Pageable pageable);
+
+  // ✅ serializa los sync concurrentes del mismo server (refreshNow + probe del job); se libera con la transacción
+  @Query(value = "select count(*) from (select pg_advisory_xact_lock(hashtextextended(cast(:serverId as text), 0))) l",
+      nativeQuery = true)
+  long lockForSync(@Param("serverId") UUID serverId);
+
+  @Modifying
+  @Query("delete from McpServerTool t where t.serverId = :serverId")
+  int deleteByServerId(@Param("serverId") UUID serverId);
+}
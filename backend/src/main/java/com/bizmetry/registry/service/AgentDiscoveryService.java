@@ -2,7 +2,6 @@ package com.bizmetry.registry.service;
 
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -28,7 +27,6 @@ import com.bizmetry.registry.model.McpServer;
 import com.bizmetry.registry.repo.AIModelRepository;
 import com.bizmetry.registry.repo.AgentRepository;
 import com.bizmetry.registry.repo.McpServerRepository;
-import com.fasterxml.jackson.databind.JsonNode;
 
 @Service
 public class AgentDiscoveryService {
@@ -45,6 +43,12 @@ public class AgentDiscoveryService {
     @Autowired
     private final AgentService agentService;
 
+    @Autowired
+    private final McpToolCatalogService toolCatalog;
+
+    @Autowired
+    private final AgentToolRefService toolRefs;
+
     /**
      * Método para descubrir agentes con sorting, searching, filtering y status.
      */
@@ -53,13 +57,17 @@ public class AgentDiscoveryService {
             McpServerRepository mcpServerRepository,
             AIModelRepository aiModelRepository,
             AgentRepository agentRepository,
-            AgentService agentService
+            AgentService agentService,
+            McpToolCatalogService toolCatalog,
+            AgentToolRefService toolRefs
 
     ) {
         this.mcpServerRepository = mcpServerRepository;
         this.agentRepository = agentRepository;
         this.aiModelRepository = aiModelRepository;
         this.agentService = agentService;
+        this.toolCatalog = toolCatalog;
+        this.toolRefs = toolRefs;
     }
 
     public List<AgentDTO> discoverAgents(AgentDiscoverRequest request) {
@@ -293,7 +301,7 @@ public class AgentDiscoveryService {
             // Verificar si la tool está presente en el MCP Server
             McpServer mcpServer = mcpServerOpt.get();
             if (tool.getToolName() != null) {
-                if (!mcpServer.getServerDoc().has("tools") || !isToolInMcpServer(tool.getToolName(), mcpServer))
+                if (!isToolInMcpServer(tool.getToolName(), mcpServer))
                     throw new IllegalArgumentException(
                             "Tool " + tool.getToolName() + " does not exist in MCP Server " + mcpServer.getName());
 
@@ -330,6 +338,7 @@ public class AgentDiscoveryService {
 
         // Guardar el agente en la base de datos
         Agent savedAgent = agentRepository.save(newAgent);
+        toolRefs.sync(savedAgent);
 
         AgentSnapshotDTO registerResponse = agentService.getAgentSnapshot(savedAgent.getAgentId());
 
@@ -361,14 +370,8 @@ private boolean isValidVersion(String version) {
      *         False.
      */
     private boolean isToolInMcpServer(String toolName, McpServer mcpServer) {
-        Iterator<JsonNode> toolsIterator = mcpServer.getServerDoc().get("tools").elements();
-        while (toolsIterator.hasNext()) {
-            JsonNode toolNode = toolsIterator.next();
-            if (toolNode.get("name").asText().equals(toolName)) {
-                return true; // La tool fue encontrada
-            }
-        }
-        return false; // La tool no fue encontrada
+        // lookup indexado en mcp_server_tools (server_id, name)
+        return toolCatalog.exists(mcpServer.getServerId(), toolName);
     }
 
     /**
@@ -19,6 +19,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -34,14 +35,15 @@ import com.bizmetry.registry.dto.agent.MetadataDTO;
 import com.bizmetry.registry.dto.agent.MetadataDTO.McpTool;
 import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
 import com.bizmetry.registry.dto.mcpserver.connection.McpServerTestConnectionResponse;
+import com.bizmetry.registry.exception.ResourceNotFoundException;
 import com.bizmetry.registry.jobs.McpToolNormalizer;
+import com.bizmetry.registry.mcp.McpLatencyTracker;
 import com.bizmetry.registry.model.Agent;
 import com.bizmetry.registry.model.AgentStatus;
 import com.bizmetry.registry.model.McpServer;
 import com.bizmetry.registry.repo.AIModelRepository;
 import com.bizmetry.registry.repo.AgentRepository;
 import com.bizmetry.registry.repo.McpServerRepository;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import reactor.core.publisher.Mono;
@@ -55,6 +57,9 @@ public class AgentService {
   private final WebClient insecureWebClient;
   private final ObjectMapper om;
   private final McpConnectionService mcpConnectionService;
+  private final McpToolCatalogService toolCatalog;
+  private final McpLatencyTracker latencies;
+  private final AgentToolRefService toolRefs;
 
   public AgentService(
       AgentRepository agentRepository,
@@ -64,12 +69,18 @@ public class AgentService {
       ObjectMapper om,
       McpConnectionService mcpConnectionService,
       AIModelRepository aiModelRepository,
-      @Qualifier("insecureWebClient") WebClient insecureWebClient) {
+      @Qualifier("insecureWebClient") WebClient insecureWebClient,
+      McpToolCatalogService toolCatalog,
+      McpLatencyTracker latencies,
+      AgentToolRefService toolRefs) {
     this.agentRepository = agentRepository;
     this.mcpServerRepository = mcpServerRepository;
     this.webClient = webClient;
     this.insecureWebClient = insecureWebClient;
     this.mcpConnectionService = mcpConnectionService;
+    this.toolCatalog = toolCatalog;
+    this.latencies = latencies;
+    this.toolRefs = toolRefs;
 
     this.om = om;
   }
@@ -104,26 +115,8 @@ public class AgentService {
       tool.setMcpServerName(mcpServer.get().getName());
       tool.setMcpServerVersion(mcpServer.get().getVersion());
 
-      // Obtener el serverDoc que contiene las herramientas del MCP Server
-      JsonNode serverDoc = mcpServer.get().getServerDoc();
-
-      // Verificar que la herramienta esté presente en el serverDoc
-      boolean toolFound = false;
-      if (serverDoc != null && serverDoc.has("tools")) {
-        JsonNode toolsNode = serverDoc.get("tools");
-
-        // Iterar sobre las herramientas y verificar si la herramienta requerida está
-        // presente
-        for (JsonNode toolNode : toolsNode) {
-          String toolName = toolNode.get("name").asText();
-          if (toolName.equals(tool.getToolName())) {
-            toolFound = true;
-            break;
-          }
-        }
-      }
-
-      if (!toolFound) {
+      // Verificar que la herramienta esté presente (catálogo indexado de tools)
+      if (!toolCatalog.exists(tool.getMcpServerId(), tool.getToolName())) {
         throw new IllegalArgumentException(
             "Tool with name " + tool.getToolName() + " does not exist in MCP Server with ID " + tool.getMcpServerId());
       }
@@ -137,6 +130,7 @@ public class AgentService {
 
     // Guardar el agente en la base de datos
     Agent savedAgent = agentRepository.save(agent);
+    toolRefs.sync(savedAgent);
 
     // Convertir la entidad guardada de vuelta a DTO
     return AgentDTO.fromEntity(savedAgent);
@@ -235,8 +229,10 @@ public class AgentService {
         call = spec.exchangeToMono(Mono::just);
       }
 
-      ClientResponse resp = call
-          .timeout(Duration.ofSeconds(6))
+      // ✅ timeout adaptativo por endpoint (default 6s hasta tener latencias observadas)
+      String scope = "agent:" + base;
+      Duration timeout = latencies.timeout(scope, httpMethod.name(), Duration.ofSeconds(6));
+      ClientResponse resp = latencies.track(scope, httpMethod.name(), call.timeout(timeout))
           .block();
 
       if (resp == null) {
@@ -297,6 +293,19 @@ public class AgentService {
     return t.substring(0, max) + " ...";
   }
 
+  /**
+   * Elimina el agente y sus filas de agent_tool_refs en la misma transacción: si una falla no quedan
+   * refs huérfanas apuntando a un agente borrado.
+   */
+  @Transactional
+  public void deleteAgent(UUID id) {
+    Agent agent = agentRepository.findById(id)
+        .orElseThrow(() -> new ResourceNotFoundException("Agent not found"));
+
+    toolRefs.deleteByAgent(id);
+    agentRepository.delete(agent);
+  }
+
   public AgentSnapshotDTO getAgentSnapshot(UUID id) {
     // 1. Obtener el agente por su ID
     Agent agent = agentRepository.findById(id).orElseThrow(() -> new RuntimeException("Agent not found"));
@@ -421,26 +430,8 @@ public class AgentService {
       tool.setMcpServerName(mcpServer.get().getName());
       tool.setMcpServerVersion(mcpServer.get().getVersion());
 
-      // Obtener el serverDoc que contiene las herramientas del MCP Server
-      JsonNode serverDoc = mcpServer.get().getServerDoc();
-
-      // Verificar que la herramienta esté presente en el serverDoc
-      boolean toolFound = false;
-      if (serverDoc != null && serverDoc.has("tools")) {
-        JsonNode toolsNode = serverDoc.get("tools");
-
-        // Iterar sobre las herramientas y verificar si la herramienta requerida está
-        // presente
-        for (JsonNode toolNode : toolsNode) {
-          String toolName = toolNode.get("name").asText();
-          if (toolName.equals(tool.getToolName())) {
-            toolFound = true;
-            break;
-          }
-        }
-      }
-
-      if (!toolFound) {
+      // Verificar que la herramienta esté presente (catálogo indexado de tools)
+      if (!toolCatalog.exists(tool.getMcpServerId(), tool.getToolName())) {
         throw new IllegalArgumentException(
             "Tool with name " + tool.getToolName() + " does not exist in MCP Server with ID " + tool.getMcpServerId());
       }
@@ -459,6 +450,7 @@ public class AgentService {
     thisAgent.setUpdatedTs(Instant.now());
 
     Agent savedAgent = agentRepository.save(thisAgent);
+    toolRefs.sync(savedAgent);
 
     // Convertir la entidad actualizada a DTO y devolver
     return AgentDTO.fromEntity(savedAgent);
@@ -500,7 +492,7 @@ public class AgentService {
     processMetadata(agent, agentSnapshot);
 
     // Guardar el nuevo agente en la base de datos
-    agentRepository.save(agent);
+    toolRefs.sync(agentRepository.save(agent));
   }
 
   /**
@@ -0,0 +1,291 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.bizmetry.registry.dto.agent.AgentEndpointTestRequest;
+import com.bizmetry.registry.dto.agent.AgentEndpointTestResponse;
+import com.bizmetry.registry.dto.agent.MetadataDTO;
+import com.bizmetry.registry.dto.agent.MetadataDTO.Discovery;
+import com.bizmetry.registry.dto.agent.MetadataDTO.McpTool;
+import com.bizmetry.registry.model.Agent;
+import com.bizmetry.registry.model.AgentStatus;
+import com.bizmetry.registry.model.McpServerHealth;
+import com.bizmetry.registry.model.McpServerStatus;
+import com.bizmetry.registry.repo.AgentRepository;
+import com.bizmetry.registry.repo.McpServerRepository;
+import com.bizmetry.registry.repo.McpServerRepository.ServerStatusView;
+
+/**
+ * Status de los agentes: INACTIVE si alguna de sus MCP tools vive en un server FAILED; si no, según
+ * el probe de su endpoint de discovery.
+ *
+ * Se recalcula de forma incremental ante cada {@link McpServerStatusChangedEvent} (solo los agentes
+ * que referencian ese server) y completo en la pasada lenta de reconciliación del AgentHealthcheckJob.
+ */
+@Service
+public class AgentStatusService {
+
+  private static final Logger log = LoggerFactory.getLogger(AgentStatusService.class);
+
+  private final AgentRepository agentRepository;
+  private final AgentService agentService;
+  private final McpServerRepository mcpServerRepository;
+  private final McpHealthWriteBehind writeBehind;
+  private final AgentToolRefService toolRefs;
+
+  // probes de endpoints de agentes en paralelo
+  private final Semaphore probeSlots;
+
+  public AgentStatusService(AgentRepository agentRepository, AgentService agentService,
+      McpServerRepository mcpServerRepository, McpHealthWriteBehind writeBehind, AgentToolRefService toolRefs,
+      @Value("${bizmetry.agent.healthcheck.maxConcurrency:16}") int maxConcurrency) {
+    this.agentRepository = agentRepository;
+    this.agentService = agentService;
+    this.mcpServerRepository = mcpServerRepository;
+    this.writeBehind = writeBehind;
+    this.toolRefs = toolRefs;
+    this.probeSlots = new Semaphore(Math.max(1, maxConcurrency));
+  }
+
+  /**
+   * Un MCP server cambió de status: recalcula solo los agentes que lo usan (índice inverso
+   * server -> agentes en agent_tool_refs). FAILED los pasa a INACTIVE sin probear; al volver a
+   * ACTIVE se reprueban sus endpoints.
+   */
+  @EventListener
+  public void onServerStatusChanged(McpServerStatusChangedEvent ev) {
+    List<Agent> affected = agentRepository.findAllById(toolRefs.agentIdsUsing(ev.serverId(), null));
+    if (affected.isEmpty()) return;
+
+    // vale el último status conocido, no el del evento (puede haber otro encolado detrás)
+    McpServerHealth current = writeBehind.current(ev.serverId());
+    McpServerStatus status = current != null ? current.getStatus() : ev.to();
+
+    log.info("[AGENT][STATUS] serverId={} {} -> {}: refreshing {} agents",
+        ev.serverId(), ev.from(), status, affected.size());
+
+    refresh(affected, Map.of(ev.serverId(), status));
+  }
+
+  /**
+   * Recalcula y guarda el status de los agentes.
+   *
+   * @param overrides status de servers más nuevo que el persistido (write-behind todavía sin flushear)
+   */
+  public RefreshStats refresh(List<Agent> agents, Map<UUID, McpServerStatus> overrides) {
+    int ok = 0;
+    int failed = 0;
+
+    // 1) Parsear metadata una vez por agente
+    Map<Agent, MetadataDTO> metadataByAgent = new LinkedHashMap<>();
+    for (Agent agent : agents) {
+      try {
+        metadataByAgent.put(agent, MetadataDTO.fromJsonNode(agent.getMetadata()));
+      } catch (Exception e) {
+        failed++;
+        markInactive(agent);
+        log.warn("❌ FAILED [{}] invalid metadata -> {}", agent.getAgentId(), safeMsg(e));
+      }
+    }
+
+    // 2) Status de todos los MCP servers referenciados: una sola query
+    Map<UUID, McpServerStatus> serverStatuses = loadServerStatuses(metadataByAgent.values());
+    serverStatuses.putAll(overrides);
+
+    // 3) Agentes con alguna MCP tool en un server FAILED -> INACTIVE sin probear;
+    // el resto se agrupa por endpoint: muchas versiones de un agente comparten el mismo
+    Map<EndpointKey, List<Agent>> byEndpoint = new LinkedHashMap<>();
+    for (Map.Entry<Agent, MetadataDTO> e : metadataByAgent.entrySet()) {
+      Agent agent = e.getKey();
+      MetadataDTO metadata = e.getValue();
+
+      if (hasFailedServer(metadata, serverStatuses)) {
+        markInactive(agent);
+        ok++;
+        log.info("   ❌ Agent '{}' has MCP tools on a FAILED server", agent.getName());
+        continue;
+      }
+
+      try {
+        byEndpoint.computeIfAbsent(EndpointKey.of(metadata.getDiscovery()), k -> new ArrayList<>()).add(agent);
+      } catch (Exception ex) {
+        failed++;
+        markInactive(agent);
+        log.warn("❌ FAILED [{}] invalid discovery -> {}", agent.getAgentId(), safeMsg(ex));
+      }
+    }
+
+    // 4) Un probe por endpoint distinto, en paralelo (acotado)
+    Map<EndpointKey, AgentEndpointTestResponse> results = probeAll(byEndpoint.keySet());
+
+    // 5) Aplicar el resultado del endpoint a todos sus agentes
+    for (Map.Entry<EndpointKey, List<Agent>> e : byEndpoint.entrySet()) {
+      AgentEndpointTestResponse testResponse = results.get(e.getKey());
+
+      for (Agent agent : e.getValue()) {
+        if (testResponse == null) {
+          failed++;
+          markInactive(agent);
+          log.warn("❌ FAILED [{}] endpoint '{}' could not be probed", agent.getAgentId(), e.getKey().endpoint());
+          continue;
+        }
+
+        ok++;
+        if (testResponse.getStatus() == 200) {
+          agent.setStatus(AgentStatus.ACTIVE);
+          log.info("   🔄 Agent '{}' passed the healthcheck", agent.getName());
+        } else {
+          agent.setStatus(AgentStatus.INACTIVE);
+          log.warn("   ❌ Agent '{}' failed the healthcheck with status: {}", agent.getName(),
+              testResponse.getStatus());
+        }
+        agent.setUpdatedTs(Instant.now());
+      }
+    }
+
+    saveStatuses(agents);
+    return new RefreshStats(agents.size(), byEndpoint.size(), ok, failed);
+  }
+
+  /**
+   * Guarda solo el status (un UPDATE por status): el evento de un server y la pasada de reconciliación
+   * pueden correr a la vez sobre los mismos agentes, y un save del entity completo pisaría al otro.
+   */
+  private void saveStatuses(List<Agent> agents) {
+    Map<AgentStatus, List<UUID>> idsByStatus = new EnumMap<>(AgentStatus.class);
+    for (Agent agent : agents) {
+      if (agent.getStatus() == null) continue;
+      idsByStatus.computeIfAbsent(agent.getStatus(), k -> new ArrayList<>()).add(agent.getAgentId());
+    }
+
+    Instant now = Instant.now();
+    idsByStatus.forEach((status, ids) -> agentRepository.updateStatus(ids, status, now));
+  }
+
+  private Map<UUID, McpServerStatus> loadServerStatuses(Collection<MetadataDTO> metadatas) {
+    Set<UUID> ids = new HashSet<>();
+    for (MetadataDTO m : metadatas) {
+      if (m.getTools() == null) continue;
+      for (McpTool t : m.getTools()) {
+        if (t.getMcpServerId() != null) ids.add(t.getMcpServerId());
+      }
+    }
+
+    Map<UUID, McpServerStatus> out = new HashMap<>();
+    if (ids.isEmpty()) return out;
+
+    for (ServerStatusView v : mcpServerRepository.findStatusesByServerIdIn(ids)) {
+      out.put(v.getServerId(), v.getStatus());
+    }
+    return out;
+  }
+
+  // validamos MCP tools. Si alguna MCP tool esta en un server FAILED, el agente queda INACTIVO
+  private boolean hasFailedServer(MetadataDTO metadata, Map<UUID, McpServerStatus> serverStatuses) {
+    if (metadata.getTools() == null) return false;
+    for (McpTool mcptool : metadata.getTools()) {
+      if (serverStatuses.get(mcptool.getMcpServerId()) == McpServerStatus.FAILED) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Probea cada endpoint una vez (virtual threads, hasta maxConcurrency a la vez).
+   * Un endpoint cuyo probe tiró excepción no aparece en el resultado.
+   */
+  private Map<EndpointKey, AgentEndpointTestResponse> probeAll(Collection<EndpointKey> endpoints) {
+    Map<EndpointKey, AgentEndpointTestResponse> results = new ConcurrentHashMap<>();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (EndpointKey key : endpoints) {
+        executor.submit(() -> {
+          long oneStart = System.currentTimeMillis();
+          try {
+            probeSlots.acquire();
+            try {
+              results.put(key, agentService.testEndpoint(key.toRequest()));
+            } finally {
+              probeSlots.release();
+            }
+            log.debug("➡️ Probed '{}' in {} ms", key.endpoint(), System.currentTimeMillis() - oneStart);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (Exception e) {
+            log.warn("❌ FAILED probing '{}' in {} ms -> {}",
+                key.endpoint(), System.currentTimeMillis() - oneStart, safeMsg(e));
+          }
+        });
+      }
+    } // close() espera a que terminen todos los probes
+
+    return results;
+  }
+
+  private void markInactive(Agent agent) {
+    agent.setStatus(AgentStatus.INACTIVE);
+    agent.setUpdatedTs(Instant.now());
+  }
+
+  private String safeMsg(Exception e) {
+    String m = e.getMessage();
+    return (m == null || m.isBlank()) ? e.getClass().getSimpleName() : m;
+  }
+
+  /**
+   * Resumen de una pasada.
+   */
+  public record RefreshStats(int agents, int endpoints, int ok, int failed) {
+  }
+
+  /**
+   * Endpoint de discovery normalizado: agentes con la misma key comparten probe.
+   */
+  private record EndpointKey(String protocol, String endpoint, String method, String queryParam) {
+
+    static EndpointKey of(Discovery d) {
+      return new EndpointKey(
+          upper(d.getProtocol()),
+          trim(d.getEndpoint()),
+          upper(d.getMethod()),
+          trim(d.getQueryParam()));
+    }
+
+    AgentEndpointTestRequest toRequest() {
+      AgentEndpointTestRequest testRequest = new AgentEndpointTestRequest();
+      testRequest.setEndpoint(endpoint);
+      testRequest.setProtocol(protocol);
+      testRequest.setMethod(method);
+      testRequest.setQueryParam(queryParam);
+      return testRequest;
+    }
+
+    private static String trim(String v) {
+      return v == null ? null : v.trim();
+    }
+
+    private static String upper(String v) {
+      return v == null ? null : v.trim().toUpperCase(Locale.ROOT);
+    }
+  }
+}
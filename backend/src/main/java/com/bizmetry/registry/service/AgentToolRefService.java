@@ -0,0 +1,72 @@
+package com.bizmetry.registry.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bizmetry.registry.dto.agent.MetadataDTO;
+import com.bizmetry.registry.dto.agent.MetadataDTO.McpTool;
+import com.bizmetry.registry.model.Agent;
+import com.bizmetry.registry.model.AgentToolRef;
+import com.bizmetry.registry.repo.AgentToolRefRepository;
+
+/**
+ * Mantiene agent_tool_refs (agente -> server/tool) en sync con agents.metadata.tools.
+ *
+ * Quien guarda un agente con tools nuevas o distintas llama a {@link #sync}; las consultas de impacto
+ * (delete de un server, cascada del healthcheck, "qué agentes usan X") van contra la tabla.
+ */
+@Service
+public class AgentToolRefService {
+
+  private final AgentToolRefRepository repo;
+
+  public AgentToolRefService(AgentToolRefRepository repo) {
+    this.repo = repo;
+  }
+
+  /**
+   * Reemplaza las refs del agente por las de su metadata actual.
+   */
+  @Transactional
+  public void sync(Agent agent) {
+    UUID agentId = agent.getAgentId();
+    repo.deleteByAgentId(agentId);
+
+    MetadataDTO metadata = MetadataDTO.fromJsonNode(agent.getMetadata());
+    if (metadata == null || metadata.getTools() == null) return;
+
+    // (server, tool) repetidos en la metadata: una sola fila
+    Set<List<Object>> seen = new LinkedHashSet<>();
+    List<AgentToolRef> refs = new ArrayList<>();
+    for (McpTool t : metadata.getTools()) {
+      if (t.getMcpServerId() == null || t.getToolName() == null) continue;
+      if (!seen.add(List.of(t.getMcpServerId(), t.getToolName()))) continue;
+      refs.add(new AgentToolRef(agentId, t.getMcpServerId(), t.getToolName()));
+    }
+    repo.saveAll(refs);
+  }
+
+  @Transactional
+  public void deleteByAgent(UUID agentId) {
+    repo.deleteByAgentId(agentId);
+  }
+
+  @Transactional
+  public void deleteByServer(UUID serverId) {
+    repo.deleteByServerId(serverId);
+  }
+
+  /**
+   * Agentes que usan el server (toolName null) o una tool puntual del server.
+   */
+  public List<UUID> agentIdsUsing(UUID serverId, String toolName) {
+    if (toolName == null || toolName.isBlank()) return repo.findAgentIdsByServerId(serverId);
+    return repo.findAgentIdsByServerIdAndToolName(serverId, toolName.trim());
+  }
+}
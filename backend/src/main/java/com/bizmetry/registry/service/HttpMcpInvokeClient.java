@@ -2,28 +2,50 @@ package com.bizmetry.registry.service;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.ClientResponse;
-import org.springframework.web.reactive.function.client.WebClient;
 
+import com.bizmetry.registry.mcp.McpAuth;
+import com.bizmetry.registry.mcp.McpEndpointResolver;
+import com.bizmetry.registry.mcp.McpLatencyTracker;
+import com.bizmetry.registry.mcp.McpSingleFlight;
+import com.bizmetry.registry.mcp.McpTransport;
 import com.bizmetry.registry.model.McpServer;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * Fachada de invocación sobre {@link McpTransport} (sesiones, pool de conexiones y codec compartidos).
+ */
 @Component
 public class HttpMcpInvokeClient implements McpInvokeClient {
 
-  private final WebClient webClient;
-  private final ObjectMapper om;
-
-  public HttpMcpInvokeClient(WebClient.Builder builder, ObjectMapper om) {
-    this.webClient = builder.build();
-    this.om = om;
+  // métodos sin efectos: llamadas idénticas concurrentes se resuelven con un solo request
+  private static final Set<String> COALESCED_METHODS = Set.of(
+      "ping",
+      "tools/list",
+      "resources/list",
+      "resources/templates/list",
+      "prompts/list"
+  );
+
+  private final McpTransport transport;
+  private final McpEndpointResolver resolver;
+  private final McpSingleFlight singleFlight;
+  private final McpLatencyTracker latencies;
+  private final McpPassiveHealth passive;
+
+  public HttpMcpInvokeClient(McpTransport transport, McpEndpointResolver resolver, McpSingleFlight singleFlight,
+      McpLatencyTracker latencies, McpPassiveHealth passive) {
+    this.transport = transport;
+    this.resolver = resolver;
+    this.singleFlight = singleFlight;
+    this.latencies = latencies;
+    this.passive = passive;
   }
 
   // ============================================================
@@ -37,170 +59,95 @@ public class HttpMcpInvokeClient implements McpInvokeClient {
 
   @Override
   public Object invokeTool(McpServer server, String toolName, Map<String, Object> args, Long timeoutMs, String bearerToken) {
+    return invokeToolAsync(server, toolName, args, timeoutMs, bearerToken).block();
+  }
+
+  @Override
+  public Mono<Object> invokeToolAsync(McpServer server, String toolName, Map<String, Object> args, Long timeoutMs,
+      String bearerToken) {
     Map<String, Object> params = Map.of(
         "name", toolName,
         "arguments", (args != null ? args : Map.of())
     );
-    return call(server, "tools/call", params, timeoutMs, bearerToken);
-  }
-
-  // ============================================================
-  // call
-  // ============================================================
-
-  @Override
-  public Object call(McpServer server, String method, Map<String, Object> params, Long timeoutMs) {
-    return call(server, method, params, timeoutMs, null);
+    return callAsync(server, "tools/call", params, timeoutMs, bearerToken);
   }
 
   @Override
-  public Object call(McpServer server, String method, Map<String, Object> params, Long timeoutMs, String bearerToken) {
+  public Flux<JsonNode> invokeToolStream(McpServer server, String toolName, Map<String, Object> args, Long timeoutMs,
+      String bearerToken) {
 
-    String endpoint = server.getDiscoveryUrl();
-    if (endpoint == null || endpoint.isBlank()) {
-      throw new IllegalArgumentException("MCP Server discoveryUrl is empty");
+    String discoveryUrl = server.getDiscoveryUrl();
+    if (discoveryUrl == null || discoveryUrl.isBlank()) {
+      return Flux.error(new IllegalArgumentException("MCP Server discoveryUrl is empty"));
     }
 
-    if (method == null || method.isBlank()) {
-      throw new IllegalArgumentException("MCP method is required");
-    }
+    String endpoint = resolver.resolvedOrSelf(discoveryUrl);
 
-    long id = System.nanoTime();
+    // timeout de inactividad entre mensajes (no del total: un tool largo que reporta progreso no se corta)
+    Duration idleTimeout = timeoutMs != null
+        ? Duration.ofMillis(timeoutMs)
+        : latencies.timeout(server.getServerId(), "tools/call");
 
-    Map<String, Object> body = Map.of(
-        "jsonrpc", "2.0",
-        "id", id,
-        "method", method,
-        "params", (params != null ? params : Map.of())
+    Map<String, Object> params = Map.of(
+        "name", toolName,
+        "arguments", (args != null ? args : Map.of())
     );
-
-    Duration timeout = Duration.ofMillis(timeoutMs != null ? timeoutMs : 30000);
-
-    String token = normalizeBearer(bearerToken);
-
-    WebClient.RequestBodySpec req = webClient.post()
-        .uri(endpoint.trim())
-        .contentType(MediaType.APPLICATION_JSON)
-        .accept(MediaType.APPLICATION_JSON, MediaType.TEXT_EVENT_STREAM) // ✅ evita 406 en servers SSE
-        .header(HttpHeaders.CACHE_CONTROL, "no-cache");
-
-    // ✅ Solo si viene token: Authorization: Bearer <token>
-    if (token != null) {
-      req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-    }
-
-    return req
-        .bodyValue(body)
-        .exchangeToMono(resp -> handleResponse(resp, endpoint))
-        .timeout(timeout)
-        .block();
+    return passive.trackMany(server.getServerId(),
+        transport.stream(endpoint, McpAuth.bearer(bearerToken), "tools/call", params, idleTimeout));
   }
 
   // ============================================================
-  // helpers
+  // call
   // ============================================================
 
-  private String normalizeBearer(String bearerToken) {
-    if (bearerToken == null) return null;
-    String t = bearerToken.trim();
-    if (t.isEmpty()) return null;
-
-    // Si pegaron "Bearer xxx", lo normalizamos a "xxx"
-    if (t.regionMatches(true, 0, "Bearer ", 0, 7)) {
-      t = t.substring(7).trim();
-    }
-
-    return t.isEmpty() ? null : t;
+  @Override
+  public Object call(McpServer server, String method, Map<String, Object> params, Long timeoutMs) {
+    return call(server, method, params, timeoutMs, null);
   }
 
-  private Mono<Object> handleResponse(ClientResponse resp, String endpoint) {
-
-    int status = resp.statusCode().value();
-    MediaType ct = resp.headers().contentType().orElse(null);
-
-    return resp.bodyToMono(String.class).defaultIfEmpty("")
-        .flatMap(raw -> {
-          if (status < 200 || status >= 300) {
-            throw new RuntimeException("HTTP " + status + " from POST " + endpoint + " -> " + truncate(raw));
-          }
-
-          try {
-            String payloadText = raw;
-
-            if (isEventStream(ct, raw)) {
-              String jsonFromSse = extractJsonFromSse(raw);
-              if (jsonFromSse == null || jsonFromSse.isBlank()) {
-                throw new RuntimeException("SSE response received but no JSON payload found from " + endpoint
-                    + " -> " + truncate(raw));
-              }
-              payloadText = jsonFromSse;
-            }
-
-            Map<String, Object> map = om.readValue(payloadText, new TypeReference<Map<String, Object>>() {});
-            if (map == null) return Mono.justOrEmpty(null);
-
-            if (map.containsKey("result")) return Mono.just(map.get("result"));
+  @Override
+  public Object call(McpServer server, String method, Map<String, Object> params, Long timeoutMs, String bearerToken) {
+    return callAsync(server, method, params, timeoutMs, bearerToken).block();
+  }
 
-            if (map.containsKey("error")) {
-              throw new RuntimeException(String.valueOf(map.get("error")));
-            }
+  @Override
+  public Mono<Object> callAsync(McpServer server, String method, Map<String, Object> params, Long timeoutMs,
+      String bearerToken) {
 
-            return Mono.just(map);
+    String discoveryUrl = server.getDiscoveryUrl();
+    if (discoveryUrl == null || discoveryUrl.isBlank()) {
+      return Mono.error(new IllegalArgumentException("MCP Server discoveryUrl is empty"));
+    }
 
-          } catch (Exception e) {
-            throw new RuntimeException("Unable to parse MCP response from " + endpoint + ": " + e.getMessage()
-                + " | body=" + truncate(raw), e);
-          }
-        });
-  }
+    // ✅ si el test connection / import ya resolvió el scheme correcto, vamos directo ahí
+    String endpoint = resolver.resolvedOrSelf(discoveryUrl);
 
-  private boolean isEventStream(MediaType ct, String body) {
-    if (ct != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(ct)) return true;
-    if (body == null) return false;
-    String t = body.trim();
-    return t.startsWith("event:") || t.startsWith("data:") || t.startsWith("id:");
-  }
-
-  private String extractJsonFromSse(String sseBody) {
-    if (sseBody == null || sseBody.isBlank()) return null;
+    if (method == null || method.isBlank()) {
+      return Mono.error(new IllegalArgumentException("MCP method is required"));
+    }
 
-    String[] lines = sseBody.split("\\r?\\n");
-    StringBuilder dataBuf = new StringBuilder();
-    String lastGoodJson = null;
+    Object scope = server.getServerId() != null ? server.getServerId() : endpoint;
 
-    for (String line : lines) {
-      if (line.startsWith("data:")) {
-        String chunk = line.substring("data:".length()).trim();
-        if (!chunk.isEmpty()) dataBuf.append(chunk).append("\n");
-        continue;
-      }
+    // ✅ sin timeout explícito: el default del método ajustado a la latencia observada del server
+    boolean adaptive = timeoutMs == null;
+    Duration timeout = adaptive ? latencies.timeout(scope, method) : Duration.ofMillis(timeoutMs);
 
-      if (line.trim().isEmpty() && dataBuf.length() > 0) {
-        String candidate = dataBuf.toString().trim();
-        dataBuf.setLength(0);
+    // ✅ Solo si viene token: Authorization: Bearer <token>
+    McpAuth auth = McpAuth.bearer(bearerToken);
 
-        if (candidate.equals("[DONE]")) continue;
+    Supplier<Mono<Object>> call =
+        () -> latencies.track(scope, method, transport.call(endpoint, auth, method, params, timeout));
 
-        try {
-          om.readTree(candidate);
-          lastGoodJson = candidate;
-        } catch (Exception ignore) {}
-      }
+    // ✅ tráfico real (no los probes del healthcheck): alimenta el health pasivo del server
+    if ("tools/call".equals(method)) {
+      Supplier<Mono<Object>> tracked = call;
+      call = () -> passive.track(server.getServerId(), tracked.get());
     }
 
-    if (lastGoodJson == null && dataBuf.length() > 0) {
-      String candidate = dataBuf.toString().trim();
-      try {
-        om.readTree(candidate);
-        lastGoodJson = candidate;
-      } catch (Exception ignore) {}
+    if (!COALESCED_METHODS.contains(method)) {
+      return call.get();
     }
 
-    return lastGoodJson;
-  }
-
-  private String truncate(String s) {
-    if (s == null) return "";
-    return s.length() > 800 ? s.substring(0, 800) + "..." : s;
+    return singleFlight.execute(singleFlight.key(scope, method, params, auth), call);
   }
 }
@@ -0,0 +1,38 @@
+package com.bizmetry.registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * GET /actuator/mcpcircuits            -> estado de todos los breakers + últimas transiciones
+ * GET /actuator/mcpcircuits/{serverId} -> estado de un server
+ */
+@Component
+@Endpoint(id = "mcpcircuits")
+public class McpCircuitBreakerEndpoint {
+
+  private final McpCircuitBreakers breakers;
+
+  public McpCircuitBreakerEndpoint(McpCircuitBreakers breakers) {
+    this.breakers = breakers;
+  }
+
+  @ReadOperation
+  public Map<String, Object> circuits() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("servers", breakers.snapshot());
+    out.put("recentTransitions", breakers.recentTransitions());
+    return out;
+  }
+
+  @ReadOperation
+  public Map<String, Object> circuit(@Selector UUID serverId) {
+    return breakers.snapshot(serverId);
+  }
+}
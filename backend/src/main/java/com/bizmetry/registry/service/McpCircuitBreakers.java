@@ -0,0 +1,343 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.mcp.McpCallRejectedException;
+import com.bizmetry.registry.mcp.McpRpcException;
+import com.bizmetry.registry.utils.ExceptionUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Circuit breaker + bulkhead por serverId para las invocaciones de tools.
+ *
+ * Breaker (ventana deslizante por cantidad de llamadas):
+ * - CLOSED: abre si, con al menos minCalls en la ventana, el % de fallas o el % de llamadas lentas
+ *   supera el umbral.
+ * - OPEN: rechaza sin salir a la red durante openMs.
+ * - HALF_OPEN: deja pasar halfOpenCalls llamadas de prueba; si todas salen bien cierra, si una falla
+ *   (o es lenta) vuelve a abrir.
+ *
+ * Bulkhead: máximo de llamadas en vuelo por server; el excedente se rechaza (no espera), así un server
+ * colgado no acapara conexiones ni threads que usan los servers sanos.
+ *
+ * Cada transición se publica como {@link McpCircuitStateChangedEvent}.
+ */
+@Component
+public class McpCircuitBreakers {
+
+  private static final Logger log = LoggerFactory.getLogger(McpCircuitBreakers.class);
+
+  private static final int MAX_TRANSITIONS = 100;
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final McpServerEventDispatcher events;
+
+  private final int windowSize;
+  private final int minCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallNanos;
+  private final long openMs;
+  private final int halfOpenCalls;
+  private final int maxConcurrent;
+
+  private final ConcurrentHashMap<UUID, Guard> guards = new ConcurrentHashMap<>();
+  private final Deque<McpCircuitStateChangedEvent> transitions = new ArrayDeque<>();
+
+  public McpCircuitBreakers(
+      McpServerEventDispatcher events,
+      @Value("${bizmetry.mcp.breaker.windowSize:20}") int windowSize,
+      @Value("${bizmetry.mcp.breaker.minCalls:10}") int minCalls,
+      @Value("${bizmetry.mcp.breaker.failureRateThreshold:50}") int failureRateThreshold,
+      @Value("${bizmetry.mcp.breaker.slowCallRateThreshold:80}") int slowCallRateThreshold,
+      @Value("${bizmetry.mcp.breaker.slowCallMs:10000}") long slowCallMs,
+      @Value("${bizmetry.mcp.breaker.openMs:30000}") long openMs,
+      @Value("${bizmetry.mcp.breaker.halfOpenCalls:3}") int halfOpenCalls,
+      @Value("${bizmetry.mcp.bulkhead.maxConcurrent:20}") int maxConcurrent) {
+    this.events = events;
+    this.windowSize = Math.max(1, windowSize);
+    this.minCalls = Math.max(1, Math.min(minCalls, this.windowSize));
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallNanos = Math.max(1, slowCallMs) * 1_000_000L;
+    this.openMs = Math.max(0, openMs);
+    this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    this.maxConcurrent = Math.max(1, maxConcurrent);
+  }
+
+  /**
+   * Ejecuta la llamada bajo el breaker y el bulkhead del server. Si no hay permiso devuelve
+   * {@link McpCallRejectedException} sin suscribirse a la llamada.
+   */
+  public <T> Mono<T> protect(UUID serverId, Supplier<Mono<T>> call) {
+    return guard(serverId, () -> call.get().flux(), true).singleOrEmpty();
+  }
+
+  /**
+   * Igual que {@link #protect} para respuestas en streaming: el permiso se libera (y el resultado se
+   * registra) cuando el stream termina.
+   *
+   * No cuenta como llamada lenta: el streaming es justamente para tools de larga duración, y con el
+   * umbral de slowCallMs abrirían el breaker de un server sano.
+   */
+  public <T> Flux<T> protectMany(UUID serverId, Supplier<Flux<T>> call) {
+    return guard(serverId, call, false);
+  }
+
+  private <T> Flux<T> guard(UUID serverId, Supplier<Flux<T>> call, boolean countSlow) {
+    return Flux.defer(() -> {
+      Guard g = guards.computeIfAbsent(serverId, id -> new Guard(id));
+
+      if (!g.bulkhead.tryAcquire()) {
+        return Flux.error(new McpCallRejectedException(
+            "MCP server " + serverId + " has too many calls in flight (max " + maxConcurrent + ")"));
+      }
+
+      Transition t = new Transition();
+      boolean permitted;
+      synchronized (g) { // encolar bajo el lock del breaker: las transiciones salen en orden
+        permitted = g.tryAcquirePermission(System.currentTimeMillis(), t);
+        publish(t);
+      }
+      if (!permitted) {
+        g.bulkhead.release();
+        return Flux.error(new McpCallRejectedException(
+            "MCP server " + serverId + " circuit breaker is OPEN (recent calls failing); try again later"));
+      }
+
+      long start = System.nanoTime();
+      AtomicReference<Throwable> error = new AtomicReference<>();
+
+      return Flux.defer(call)
+          .doOnError(error::set)
+          .doFinally(signal -> {
+            g.bulkhead.release();
+
+            Transition done = new Transition();
+            if (signal == SignalType.CANCEL) {
+              g.onCancel(); // el caller se fue: no dice nada de la salud del server
+            } else {
+              boolean slow = countSlow && System.nanoTime() - start >= slowCallNanos;
+              synchronized (g) {
+                g.onResult(isServerFailure(error.get()), slow, System.currentTimeMillis(), done);
+                publish(done);
+              }
+            }
+          });
+    });
+  }
+
+  /**
+   * Solo cuentan como falla los errores de transporte y los timeouts: un error JSON-RPC (argumentos
+   * inválidos, el tool falló) es una respuesta del server, y un caller con malos argumentos no debe
+   * abrir el breaker de un server sano.
+   */
+  private static boolean isServerFailure(Throwable e) {
+    if (e == null) return false;
+    return !(e instanceof McpRpcException || ExceptionUtils.rootCause(e) instanceof McpRpcException);
+  }
+
+  public State state(UUID serverId) {
+    Guard g = guards.get(serverId);
+    return g == null ? State.CLOSED : g.state();
+  }
+
+  /**
+   * Server eliminado: descarta su breaker.
+   */
+  public void forget(UUID serverId) {
+    guards.remove(serverId);
+  }
+
+  /**
+   * Foto de todos los breakers (para el endpoint de actuator).
+   */
+  public Map<UUID, Map<String, Object>> snapshot() {
+    Map<UUID, Map<String, Object>> out = new LinkedHashMap<>();
+    guards.forEach((id, g) -> out.put(id, g.snapshot()));
+    return out;
+  }
+
+  public Map<String, Object> snapshot(UUID serverId) {
+    Guard g = guards.get(serverId);
+    return g == null ? null : g.snapshot();
+  }
+
+  public List<McpCircuitStateChangedEvent> recentTransitions() {
+    synchronized (transitions) {
+      return new ArrayList<>(transitions);
+    }
+  }
+
+  private void publish(Transition t) {
+    McpCircuitStateChangedEvent ev = t.event;
+    if (ev == null) return;
+
+    synchronized (transitions) {
+      if (transitions.size() >= MAX_TRANSITIONS) transitions.removeFirst();
+      transitions.addLast(ev);
+    }
+
+    if (ev.to() == State.OPEN) {
+      log.warn("[MCP][BREAKER] serverId={} {} -> {} ({}) retryAt={}",
+          ev.serverId(), ev.from(), ev.to(), ev.reason(), ev.retryAt());
+    } else {
+      log.info("[MCP][BREAKER] serverId={} {} -> {} ({})", ev.serverId(), ev.from(), ev.to(), ev.reason());
+    }
+
+    // doFinally corre en el event loop de Netty y los listeners tocan la DB: se despachan aparte,
+    // en el orden de las transiciones
+    events.publish(ev.serverId(), ev);
+  }
+
+  /** Transición ocurrida en el breaker; se encola (sin bloquear) todavía bajo su lock. */
+  private static final class Transition {
+    private McpCircuitStateChangedEvent event;
+  }
+
+  private final class Guard {
+    private final UUID serverId;
+    private final Semaphore bulkhead = new Semaphore(maxConcurrent);
+
+    // ventana circular: por llamada, si falló y si fue lenta
+    private final boolean[] failed = new boolean[windowSize];
+    private final boolean[] slow = new boolean[windowSize];
+    private int next;
+    private int size;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private long lastTransitionAt = System.currentTimeMillis();
+
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    private Guard(UUID serverId) {
+      this.serverId = serverId;
+    }
+
+    private synchronized State state() {
+      return state;
+    }
+
+    private synchronized boolean tryAcquirePermission(long now, Transition t) {
+      if (state == State.OPEN) {
+        if (now < openUntil) return false;
+        transition(State.HALF_OPEN, "open timeout elapsed", now, t);
+      }
+
+      if (state == State.HALF_OPEN) {
+        if (halfOpenPermitted >= halfOpenCalls) return false;
+        halfOpenPermitted++;
+      }
+      return true;
+    }
+
+    private synchronized void onCancel() {
+      if (state == State.HALF_OPEN && halfOpenPermitted > 0) halfOpenPermitted--;
+    }
+
+    private synchronized void onResult(boolean isFailure, boolean isSlow, long now, Transition t) {
+      switch (state) {
+        case HALF_OPEN -> {
+          if (isFailure || isSlow) {
+            transition(State.OPEN, isFailure ? "trial call failed" : "trial call was slow", now, t);
+          } else if (++halfOpenSucceeded >= halfOpenCalls) {
+            transition(State.CLOSED, halfOpenCalls + " trial calls succeeded", now, t);
+          }
+        }
+        case CLOSED -> {
+          record(isFailure, isSlow);
+          if (size < minCalls) return;
+
+          int failureRate = failures * 100 / size;
+          int slowRate = slowCalls * 100 / size;
+          if (failureRate >= failureRateThreshold) {
+            transition(State.OPEN, "failure rate " + failureRate + "% over last " + size + " calls", now, t);
+          } else if (slowRate >= slowCallRateThreshold) {
+            transition(State.OPEN, "slow call rate " + slowRate + "% over last " + size + " calls", now, t);
+          }
+        }
+        case OPEN -> {
+          // llamada que salió antes de abrir y terminó después: ya no cuenta
+        }
+      }
+    }
+
+    private void record(boolean isFailure, boolean isSlow) {
+      if (size == windowSize) {
+        if (failed[next]) failures--;
+        if (slow[next]) slowCalls--;
+      } else {
+        size++;
+      }
+      failed[next] = isFailure;
+      slow[next] = isSlow;
+      if (isFailure) failures++;
+      if (isSlow) slowCalls++;
+      next = (next + 1) % windowSize;
+    }
+
+    private void transition(State to, String reason, long now, Transition t) {
+      State from = state;
+      state = to;
+      lastTransitionAt = now;
+      halfOpenPermitted = 0;
+      halfOpenSucceeded = 0;
+
+      Instant retryAt = null;
+      if (to == State.OPEN) {
+        openUntil = now + openMs;
+        retryAt = Instant.ofEpochMilli(openUntil);
+      }
+      if (to == State.CLOSED) {
+        // ventana limpia: la historia previa a la apertura no debe volver a abrirlo
+        next = 0;
+        size = 0;
+        failures = 0;
+        slowCalls = 0;
+      }
+
+      t.event = new McpCircuitStateChangedEvent(serverId, from, to, reason, Instant.ofEpochMilli(now), retryAt);
+    }
+
+    private synchronized Map<String, Object> snapshot() {
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("state", state);
+      m.put("bufferedCalls", size);
+      m.put("failureRate", size == 0 ? 0 : failures * 100 / size);
+      m.put("slowCallRate", size == 0 ? 0 : slowCalls * 100 / size);
+      m.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+      m.put("maxConcurrent", maxConcurrent);
+      m.put("lastTransitionTs", Instant.ofEpochMilli(lastTransitionAt));
+      if (state == State.OPEN) m.put("retryAt", Instant.ofEpochMilli(openUntil));
+      return m;
+    }
+  }
+}
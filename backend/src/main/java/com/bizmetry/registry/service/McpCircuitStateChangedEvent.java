@@ -0,0 +1,20 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.bizmetry.registry.service.McpCircuitBreakers.State;
+
+/**
+ * Transición del circuit breaker de un server (se publica fuera del lock del breaker).
+ *
+ * @param retryAt cuándo el breaker deja pasar llamadas de prueba (solo para OPEN; null en el resto)
+ */
+public record McpCircuitStateChangedEvent(
+    UUID serverId,
+    State from,
+    State to,
+    String reason,
+    Instant at,
+    Instant retryAt) {
+}
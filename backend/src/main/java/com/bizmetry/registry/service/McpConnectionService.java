@@ -6,8 +6,11 @@ import org.springframework.stereotype.Service;
 
 import com.bizmetry.registry.dto.mcpserver.McpToolDto;
 import com.bizmetry.registry.dto.mcpserver.connection.McpServerTestConnectionResponse;
+import com.bizmetry.registry.mcp.McpAuth;
 import com.bizmetry.registry.mcp.McpClient;
+import com.bizmetry.registry.mcp.McpEndpointResolver;
 import com.bizmetry.registry.mcp.McpSession;
+import com.bizmetry.registry.mcp.McpSingleFlight;
 import com.bizmetry.registry.mcp.McpTool;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -15,12 +18,23 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class McpConnectionService {
 
   private final McpClient mcpClient;
+  private final McpSingleFlight singleFlight;
 
-  public McpConnectionService(McpClient mcpClient) {
+  public McpConnectionService(McpClient mcpClient, McpSingleFlight singleFlight) {
     this.mcpClient = mcpClient;
+    this.singleFlight = singleFlight;
   }
 
+  /**
+   * initialize + tools/list. Tests concurrentes contra la misma discovery URL (import masivo,
+   * agentes que comparten server) esperan al que ya está en vuelo en vez de repetirlo.
+   */
   public McpServerTestConnectionResponse testConnection(String discoveryUrl) {
+    String key = singleFlight.key(McpEndpointResolver.normalize(discoveryUrl), "testConnection", null, McpAuth.NONE);
+    return singleFlight.executeBlocking(key, () -> doTestConnection(discoveryUrl));
+  }
+
+  private McpServerTestConnectionResponse doTestConnection(String discoveryUrl) {
     long start = System.nanoTime();
 
     McpSession session = mcpClient.initialize(discoveryUrl);
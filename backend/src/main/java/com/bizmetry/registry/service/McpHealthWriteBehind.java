@@ -0,0 +1,159 @@
+package com.bizmetry.registry.service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.model.McpServerHealth;
+import com.bizmetry.registry.model.McpServerStatus;
+import com.bizmetry.registry.repo.McpServerHealthRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Buffer en memoria de resultados de healthcheck (uno por server, el último gana).
+ *
+ * Se vacía cada bizmetry.mcp.health.flushMs con upserts JDBC en batch sobre mcp_server_health,
+ * más un UPDATE en batch de mcp_servers.status que solo escribe las filas cuyo status cambió.
+ */
+@Component
+public class McpHealthWriteBehind {
+
+  private static final Logger log = LoggerFactory.getLogger(McpHealthWriteBehind.class);
+
+  // el EXISTS evita resucitar filas de servers borrados mientras el probe estaba en vuelo
+  private static final String UPSERT_SQL =
+      "INSERT INTO mcp_server_health (server_id, status, last_probe_ts, last_error, latency_ms,"
+          + " consecutive_failures, consecutive_successes, next_probe_ts, last_catalog_ts)"
+          + " SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM mcp_servers WHERE server_id = ?)"
+          + " ON CONFLICT (server_id) DO UPDATE SET"
+          + " status = EXCLUDED.status,"
+          + " last_probe_ts = EXCLUDED.last_probe_ts,"
+          + " last_error = EXCLUDED.last_error,"
+          + " latency_ms = EXCLUDED.latency_ms,"
+          + " consecutive_failures = EXCLUDED.consecutive_failures,"
+          + " consecutive_successes = EXCLUDED.consecutive_successes,"
+          + " next_probe_ts = EXCLUDED.next_probe_ts,"
+          + " last_catalog_ts = EXCLUDED.last_catalog_ts";
+
+  // DISABLED lo decide un humano: el healthcheck no lo pisa
+  private static final String STATUS_SQL =
+      "UPDATE mcp_servers SET status = ? WHERE server_id = ? AND status <> ? AND status <> '"
+          + McpServerStatus.DISABLED.name() + "'";
+
+  private final JdbcTemplate jdbc;
+  private final McpServerHealthRepository repo;
+  private final int batchSize;
+
+  private final ConcurrentHashMap<UUID, McpServerHealth> pending = new ConcurrentHashMap<>();
+
+  public McpHealthWriteBehind(
+      JdbcTemplate jdbc,
+      McpServerHealthRepository repo,
+      @Value("${bizmetry.mcp.health.flushBatchSize:500}") int batchSize) {
+    this.jdbc = jdbc;
+    this.repo = repo;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  public void enqueue(McpServerHealth h) {
+    pending.put(h.getServerId(), h);
+  }
+
+  public boolean isPending(UUID serverId) {
+    return pending.containsKey(serverId);
+  }
+
+  /**
+   * Último estado conocido: lo pendiente en memoria o, si no hay, lo persistido.
+   */
+  public McpServerHealth current(UUID serverId) {
+    McpServerHealth h = pending.get(serverId);
+    return h != null ? h : repo.findById(serverId).orElse(null);
+  }
+
+  /**
+   * Descarta lo pendiente y borra la fila (server eliminado).
+   */
+  public void forget(UUID serverId) {
+    pending.remove(serverId);
+    jdbc.update("DELETE FROM mcp_server_health WHERE server_id = ?", serverId);
+  }
+
+  @Scheduled(
+      initialDelayString = "${bizmetry.mcp.health.flushMs:1000}",
+      fixedDelayString = "${bizmetry.mcp.health.flushMs:1000}"
+  )
+  public void scheduledFlush() {
+    flush();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flush();
+  }
+
+  /**
+   * Escribe todo lo pendiente. Una entrada se saca del buffer recién cuando quedó persistida
+   * (y solo si nadie la reemplazó entretanto), así un server en vuelo nunca parece "sin probe".
+   */
+  public synchronized int flush() {
+    if (pending.isEmpty()) return 0;
+
+    List<McpServerHealth> snapshot = new ArrayList<>(pending.values());
+    int written = 0;
+
+    for (int from = 0; from < snapshot.size(); from += batchSize) {
+      List<McpServerHealth> chunk = snapshot.subList(from, Math.min(snapshot.size(), from + batchSize));
+      try {
+        writeChunk(chunk);
+        for (McpServerHealth h : chunk) {
+          pending.remove(h.getServerId(), h);
+        }
+        written += chunk.size();
+      } catch (Exception e) {
+        // queda en el buffer y se reintenta en el próximo flush
+        log.warn("[MCP][HEALTH] flush failed for {} rows: {}", chunk.size(), e.getMessage());
+      }
+    }
+
+    log.debug("[MCP][HEALTH] flushed {} health rows ({} still pending)", written, pending.size());
+    return written;
+  }
+
+  private void writeChunk(List<McpServerHealth> chunk) {
+    jdbc.batchUpdate(UPSERT_SQL, chunk, chunk.size(), (ps, h) -> {
+      ps.setObject(1, h.getServerId());
+      ps.setString(2, h.getStatus().name());
+      ps.setTimestamp(3, ts(h.getLastProbeTs()));
+      ps.setString(4, h.getLastError());
+      ps.setObject(5, h.getLatencyMs(), Types.BIGINT);
+      ps.setInt(6, h.getConsecutiveFailures());
+      ps.setInt(7, h.getConsecutiveSuccesses());
+      ps.setTimestamp(8, ts(h.getNextProbeTs()));
+      ps.setTimestamp(9, ts(h.getLastCatalogTs()));
+      ps.setObject(10, h.getServerId());
+    });
+
+    jdbc.batchUpdate(STATUS_SQL, chunk, chunk.size(), (ps, h) -> {
+      ps.setString(1, h.getStatus().name());
+      ps.setObject(2, h.getServerId());
+      ps.setString(3, h.getStatus().name());
+    });
+  }
+
+  private static Timestamp ts(Instant i) {
+    return i == null ? null : Timestamp.from(i);
+  }
+}
@@ -0,0 +1,150 @@
+package com.bizmetry.registry.service;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.mcp.McpCallRejectedException;
+import com.bizmetry.registry.mcp.McpLatencyTracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Hedged requests para tools/call.
+ *
+ * Si la llamada no respondió después del p95 observado del server, se lanza una segunda idéntica;
+ * la primera respuesta gana y la otra se cancela. Un intento que falla no le gana al otro (un hedge
+ * con connection refused no cancela una primaria que iba a responder): el error sale solo si fallan
+ * los dos. Solo para tools idempotentes / read-only (lo decide el caller).
+ *
+ * Presupuesto: cada llamada suma hedgeRatio tokens (default 0.05) y cada hedge consume uno, así los
+ * hedges nunca pasan de ~5% de carga extra aunque un server entero se ponga lento.
+ */
+@Component
+public class McpHedging {
+
+  private static final Logger log = LoggerFactory.getLogger(McpHedging.class);
+
+  public static final String METHOD = "tools/call";
+
+  private final McpLatencyTracker latencies;
+  private final boolean defaultEnabled;
+  private final double hedgeRatio;
+  private final double maxTokens;
+  private final long minDelayMs;
+  private final double quantile;
+
+  private final Counter sent;
+  private final Counter denied;
+
+  private double tokens;
+
+  public McpHedging(
+      McpLatencyTracker latencies,
+      MeterRegistry meters,
+      @Value("${bizmetry.mcp.hedge.defaultEnabled:false}") boolean defaultEnabled,
+      @Value("${bizmetry.mcp.hedge.budgetRatio:0.05}") double hedgeRatio,
+      @Value("${bizmetry.mcp.hedge.maxBurst:10}") double maxTokens,
+      @Value("${bizmetry.mcp.hedge.minDelayMs:20}") long minDelayMs,
+      @Value("${bizmetry.mcp.hedge.quantile:0.95}") double quantile) {
+    this.latencies = latencies;
+    this.defaultEnabled = defaultEnabled;
+    this.hedgeRatio = Math.max(0, hedgeRatio);
+    this.maxTokens = Math.max(1, maxTokens);
+    this.minDelayMs = Math.max(1, minDelayMs);
+    this.quantile = quantile;
+
+    this.sent = Counter.builder("mcp.invoke.hedges").tag("outcome", "sent").register(meters);
+    this.denied = Counter.builder("mcp.invoke.hedges").tag("outcome", "budget_exhausted").register(meters);
+  }
+
+  /**
+   * @param requested hedge pedido en el request (null = default de config)
+   */
+  public boolean enabled(Boolean requested) {
+    return requested != null ? requested : defaultEnabled;
+  }
+
+  /**
+   * Ejecuta la llamada y, si corresponde, un hedge tras el p95 del server (las latencias las registra
+   * el invoke client por cada intento).
+   *
+   * @param hedgeable la tool es idempotente/read-only y el caller pidió hedging
+   */
+  public <T> Mono<T> execute(UUID serverId, boolean hedgeable, Long timeoutMs, Supplier<Mono<T>> attempt) {
+    return Mono.defer(() -> {
+      earn();
+
+      if (!hedgeable) return Mono.defer(attempt);
+
+      // sin timeout explícito, el que va a usar el invoke client (adaptativo)
+      long effectiveTimeoutMs = timeoutMs != null ? timeoutMs : latencies.timeout(serverId, METHOD).toMillis();
+
+      long p = latencies.percentile(serverId, METHOD, quantile);
+      if (p < 0) return Mono.defer(attempt); // sin muestras suficientes todavía
+
+      long delayMs = Math.max(minDelayMs, p);
+      if (delayMs >= effectiveTimeoutMs / 2) return Mono.defer(attempt); // el hedge no llegaría a servir antes del timeout
+
+      AtomicReference<Throwable> primaryError = new AtomicReference<>();
+      Sinks.One<Boolean> primaryFailed = Sinks.one();
+
+      // un intento que completa vacío (tool con result null) también es una respuesta: como Optional
+      // gana igual que un valor y cancela el hedge pendiente
+      Mono<Optional<T>> primary = Mono.defer(attempt)
+          .map(Optional::of)
+          .defaultIfEmpty(Optional.empty())
+          .doOnError(e -> {
+            primaryError.set(e);
+            primaryFailed.tryEmitValue(true);
+          });
+
+      Mono<Optional<T>> hedge = Mono.delay(Duration.ofMillis(delayMs))
+          .takeUntilOther(primaryFailed.asMono()) // la primaria ya falló: no es un retry
+          .flatMap(tick -> {
+            if (!spend()) {
+              denied.increment();
+              return Mono.<Optional<T>>empty(); // sin presupuesto: la primaria decide
+            }
+            sent.increment();
+            log.debug("[MCP][HEDGE] serverId={} no response after {}ms, sending hedge", serverId, delayMs);
+            // si el breaker/bulkhead rechaza el hedge, la primaria decide
+            return Mono.defer(attempt)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(McpCallRejectedException.class, e -> Mono.empty());
+          });
+
+      // la primera respuesta gana y la otra se cancela; si no hay ninguna, el error de la primaria
+      return Mono.firstWithValue(primary, hedge)
+          .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : unwrap(e))
+          .flatMap(Mono::justOrEmpty);
+    });
+  }
+
+  // firstWithValue sin valores: NoSuchElementException con los errores de cada intento como suppressed
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof NoSuchElementException && e.getSuppressed().length > 0 ? e.getSuppressed()[0] : e;
+  }
+
+  private synchronized void earn() {
+    tokens = Math.min(maxTokens, tokens + hedgeRatio);
+  }
+
+  private synchronized boolean spend() {
+    if (tokens < 1) return false;
+    tokens -= 1;
+    return true;
+  }
+}
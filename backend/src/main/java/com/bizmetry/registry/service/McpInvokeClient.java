@@ -3,6 +3,10 @@ package com.bizmetry.registry.service;
 import java.util.Map;
 
 import com.bizmetry.registry.model.McpServer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface McpInvokeClient {
 
@@ -22,6 +26,24 @@ public interface McpInvokeClient {
       String bearerToken
   );
 
+  // ✅ NUEVO: no bloqueante (no pinnea el thread del request mientras el tool corre)
+  Mono<Object> invokeToolAsync(
+      McpServer server,
+      String toolName,
+      Map<String, Object> args,
+      Long timeoutMs,
+      String bearerToken
+  );
+
+  // ✅ NUEVO: streaming (mensajes JSON-RPC a medida que llegan: progress/notifications y la respuesta final)
+  Flux<JsonNode> invokeToolStream(
+      McpServer server,
+      String toolName,
+      Map<String, Object> args,
+      Long timeoutMs,
+      String bearerToken
+  );
+
   // ============================================================
   // Generic JSON-RPC call
   // ============================================================
@@ -37,4 +59,13 @@ public interface McpInvokeClient {
       Long timeoutMs,
       String bearerToken
   );
+
+  // ✅ NUEVO: no bloqueante
+  Mono<Object> callAsync(
+      McpServer server,
+      String method,
+      Map<String, Object> params,
+      Long timeoutMs,
+      String bearerToken
+  );
 }
@@ -0,0 +1,195 @@
+package com.bizmetry.registry.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.mcp.McpRpcException;
+import com.bizmetry.registry.utils.ExceptionUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Health pasivo: resultado y latencia de las invocaciones reales (tools/call) por server, en una
+ * ventana deslizante de las últimas windowSize llamadas.
+ *
+ * - Tráfico real reciente y sano (minSuccesses OK en los últimos freshMs, la última OK y fallas por
+ *   debajo de maxFailureRate): el healthcheck se saltea el probe de liveness; un server muy usado no
+ *   cuesta probes extra.
+ * - Ráfaga de fallas (burstFailures dentro de burstWindowMs): el server queda marcado para un probe
+ *   fuera de agenda en el próximo tick del job (como mucho uno cada burstCooldownMs).
+ *
+ * Un error JSON-RPC cuenta como OK: el server contestó (el que falló es el tool o los argumentos).
+ */
+@Component
+public class McpPassiveHealth {
+
+  private static final Logger log = LoggerFactory.getLogger(McpPassiveHealth.class);
+
+  private final int windowSize;
+  private final long freshMs;
+  private final int minSuccesses;
+  private final int maxFailureRate;
+  private final int burstFailures;
+  private final long burstWindowMs;
+  private final long burstCooldownMs;
+
+  private final ConcurrentHashMap<UUID, Window> windows = new ConcurrentHashMap<>();
+  private final Set<UUID> urgent = ConcurrentHashMap.newKeySet();
+
+  public McpPassiveHealth(
+      @Value("${bizmetry.mcp.passive.windowSize:50}") int windowSize,
+      @Value("${bizmetry.mcp.passive.freshMs:60000}") long freshMs,
+      @Value("${bizmetry.mcp.passive.minSuccesses:3}") int minSuccesses,
+      @Value("${bizmetry.mcp.passive.maxFailureRate:20}") int maxFailureRate,
+      @Value("${bizmetry.mcp.passive.burstFailures:5}") int burstFailures,
+      @Value("${bizmetry.mcp.passive.burstWindowMs:10000}") long burstWindowMs,
+      @Value("${bizmetry.mcp.passive.burstCooldownMs:30000}") long burstCooldownMs) {
+    this.windowSize = Math.max(1, windowSize);
+    this.freshMs = Math.max(1, freshMs);
+    this.minSuccesses = Math.max(1, Math.min(minSuccesses, this.windowSize));
+    this.maxFailureRate = maxFailureRate;
+    this.burstFailures = Math.max(1, Math.min(burstFailures, this.windowSize));
+    this.burstWindowMs = Math.max(1, burstWindowMs);
+    this.burstCooldownMs = Math.max(0, burstCooldownMs);
+  }
+
+  /**
+   * Registra el resultado de la llamada. Cancelaciones no cuentan (el caller se fue).
+   */
+  public <T> Mono<T> track(UUID serverId, Mono<T> call) {
+    if (serverId == null) return call;
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return call
+          .doOnSuccess(v -> record(serverId, true, (System.nanoTime() - start) / 1_000_000))
+          .doOnError(e -> record(serverId, isServerAlive(e), (System.nanoTime() - start) / 1_000_000));
+    });
+  }
+
+  /**
+   * Igual que {@link #track} para invocaciones en streaming: cuenta al terminar el stream.
+   */
+  public <T> Flux<T> trackMany(UUID serverId, Flux<T> call) {
+    if (serverId == null) return call;
+    return Flux.defer(() -> {
+      long start = System.nanoTime();
+      return call
+          .doOnComplete(() -> record(serverId, true, (System.nanoTime() - start) / 1_000_000))
+          .doOnError(e -> record(serverId, isServerAlive(e), (System.nanoTime() - start) / 1_000_000));
+    });
+  }
+
+  public void record(UUID serverId, boolean ok, long latencyMs) {
+    long now = System.currentTimeMillis();
+    Window w = windows.computeIfAbsent(serverId, id -> new Window(windowSize));
+
+    if (w.add(now, ok, latencyMs) && urgent.add(serverId)) {
+      log.warn("[MCP][PASSIVE] serverId={} {} failed calls in {}ms, probing out of cycle",
+          serverId, burstFailures, burstWindowMs);
+    }
+  }
+
+  /**
+   * Si el tráfico real reciente alcanza para dar al server por vivo, la mediana de latencia de esas
+   * llamadas (para el health); si no, -1.
+   */
+  public long recentlyHealthyLatency(UUID serverId) {
+    Window w = windows.get(serverId);
+    return w == null ? -1 : w.healthyLatency(System.currentTimeMillis());
+  }
+
+  /**
+   * Servers con una ráfaga de fallas desde el último tick del job.
+   */
+  public Set<UUID> drainUrgent() {
+    Set<UUID> out = new HashSet<>();
+    for (UUID id : urgent) {
+      if (urgent.remove(id)) out.add(id);
+    }
+    return out;
+  }
+
+  /**
+   * Server eliminado: descarta su ventana.
+   */
+  public void forget(UUID serverId) {
+    windows.remove(serverId);
+    urgent.remove(serverId);
+  }
+
+  private static boolean isServerAlive(Throwable e) {
+    return e instanceof McpRpcException || ExceptionUtils.rootCause(e) instanceof McpRpcException;
+  }
+
+  private final class Window {
+    private final long[] at;
+    private final boolean[] ok;
+    private final long[] latency;
+    private int next;
+    private int size;
+    private long lastBurstAt;
+
+    private Window(int capacity) {
+      this.at = new long[capacity];
+      this.ok = new boolean[capacity];
+      this.latency = new long[capacity];
+    }
+
+    /**
+     * @return true si esta llamada completó una ráfaga de fallas (fuera del cooldown)
+     */
+    private synchronized boolean add(long now, boolean success, long latencyMs) {
+      at[next] = now;
+      ok[next] = success;
+      latency[next] = latencyMs;
+      next = (next + 1) % at.length;
+      if (size < at.length) size++;
+
+      if (success || now - lastBurstAt < burstCooldownMs) return false;
+
+      int failures = 0;
+      for (int i = 0; i < size; i++) {
+        int idx = Math.floorMod(next - 1 - i, at.length);
+        if (now - at[idx] > burstWindowMs) break;
+        if (!ok[idx]) failures++;
+      }
+      if (failures < burstFailures) return false;
+
+      lastBurstAt = now;
+      return true;
+    }
+
+    private synchronized long healthyLatency(long now) {
+      if (size == 0) return -1;
+
+      int last = Math.floorMod(next - 1, at.length);
+      if (!ok[last] || now - at[last] > freshMs) return -1;
+
+      long[] okLatencies = new long[size];
+      int successes = 0;
+      int total = 0;
+      for (int i = 0; i < size; i++) {
+        int idx = Math.floorMod(next - 1 - i, at.length);
+        if (now - at[idx] > freshMs) break;
+        total++;
+        if (ok[idx]) okLatencies[successes++] = latency[idx];
+      }
+
+      if (successes < minSuccesses) return -1;
+      if ((total - successes) * 100 / total >= maxFailureRate) return -1;
+
+      long[] sorted = Arrays.copyOf(okLatencies, successes);
+      Arrays.sort(sorted);
+      return sorted[successes / 2];
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
+
+/**
+ * Resultado de un probe de healthcheck (solo red, sin tocar la DB).
+ *
+ * Probe de liveness (ping): tools == null. Probe de catálogo (tools/list): tools con el catálogo completo.
+ */
+public class McpProbeResult {
+
+  private final boolean ok;
+  private final List<McpToolDefinition> tools;
+  private final String error;
+  private final long latencyMs;
+  private final Instant probedAt;
+
+  private McpProbeResult(boolean ok, List<McpToolDefinition> tools, String error, long latencyMs, Instant probedAt) {
+    this.ok = ok;
+    this.tools = tools;
+    this.error = error;
+    this.latencyMs = latencyMs;
+    this.probedAt = probedAt;
+  }
+
+  public static McpProbeResult ok(List<McpToolDefinition> tools, long latencyMs) {
+    return new McpProbeResult(true, tools, null, latencyMs, Instant.now());
+  }
+
+  public static McpProbeResult alive(long latencyMs) {
+    return new McpProbeResult(true, null, null, latencyMs, Instant.now());
+  }
+
+  public static McpProbeResult failed(String error, long latencyMs) {
+    return new McpProbeResult(false, null, error, latencyMs, Instant.now());
+  }
+
+  public boolean isOk() { return ok; }
+  public List<McpToolDefinition> getTools() { return tools; }
+  public boolean isCatalog() { return tools != null; }
+  public String getError() { return error; }
+  public long getLatencyMs() { return latencyMs; }
+  public Instant getProbedAt() { return probedAt; }
+}
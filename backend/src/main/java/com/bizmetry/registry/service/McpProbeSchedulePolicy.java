@@ -0,0 +1,75 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.model.McpServerHealth;
+
+/**
+ * Calcula cuándo toca el próximo probe de cada server:
+ *
+ * - FAILED: backoff exponencial desde el intervalo base (base, 2x, 4x, ...) hasta maxBackoffMs
+ * - ACTIVE estable (stableAfterSuccesses OK seguidos): stableIntervalMs
+ * - resto: intervalo base (bizmetry.mcp.healthcheck.fixedDelayMs)
+ *
+ * Siempre con jitter aleatorio (±jitterRatio) para que los probes no arranquen todos juntos.
+ */
+@Component
+public class McpProbeSchedulePolicy {
+
+  private final long baseIntervalMs;
+  private final long maxBackoffMs;
+  private final int stableAfterSuccesses;
+  private final long stableIntervalMs;
+  private final double jitterRatio;
+
+  public McpProbeSchedulePolicy(
+      @Value("${bizmetry.mcp.healthcheck.fixedDelayMs:60000}") long baseIntervalMs,
+      @Value("${bizmetry.mcp.healthcheck.maxBackoffMs:1800000}") long maxBackoffMs,
+      @Value("${bizmetry.mcp.healthcheck.stableAfterSuccesses:10}") int stableAfterSuccesses,
+      @Value("${bizmetry.mcp.healthcheck.stableIntervalMs:600000}") long stableIntervalMs,
+      @Value("${bizmetry.mcp.healthcheck.jitterRatio:0.2}") double jitterRatio) {
+    this.baseIntervalMs = Math.max(1000, baseIntervalMs);
+    this.maxBackoffMs = Math.max(this.baseIntervalMs, maxBackoffMs);
+    this.stableAfterSuccesses = Math.max(1, stableAfterSuccesses);
+    this.stableIntervalMs = Math.max(this.baseIntervalMs, stableIntervalMs);
+    this.jitterRatio = Math.min(Math.max(jitterRatio, 0d), 0.9d);
+  }
+
+  /**
+   * Actualiza contadores y agenda el próximo probe en la fila de health (no persiste).
+   * prev puede ser null (server nunca probeado).
+   */
+  public void record(McpServerHealth h, McpServerHealth prev, boolean ok, Instant probedAt) {
+    int successes = ok ? (prev == null ? 0 : prev.getConsecutiveSuccesses()) + 1 : 0;
+    int failures = ok ? 0 : (prev == null ? 0 : prev.getConsecutiveFailures()) + 1;
+
+    h.setConsecutiveSuccesses(successes);
+    h.setConsecutiveFailures(failures);
+    h.setNextProbeTs(probedAt.plusMillis(nextDelayMs(successes, failures)));
+  }
+
+  long nextDelayMs(int successes, int failures) {
+    long delay;
+    if (failures > 0) {
+      // base * 2^(failures-1), sin overflow
+      int shift = Math.min(failures - 1, 30);
+      delay = Math.min(maxBackoffMs, baseIntervalMs << shift);
+      if (delay <= 0) delay = maxBackoffMs;
+    } else if (successes >= stableAfterSuccesses) {
+      delay = stableIntervalMs;
+    } else {
+      delay = baseIntervalMs;
+    }
+    return withJitter(delay);
+  }
+
+  private long withJitter(long delay) {
+    if (jitterRatio <= 0) return delay;
+    double factor = 1d + ThreadLocalRandom.current().nextDouble(-jitterRatio, jitterRatio);
+    return Math.max(1000, Math.round(delay * factor));
+  }
+}
@@ -0,0 +1,62 @@
+package com.bizmetry.registry.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Despacha los eventos de un MCP server (transiciones del breaker, cambios de status) fuera del
+ * thread que los genera, en orden por serverId: los listeners tocan la DB y salen a la red, y una
+ * secuencia OPEN -> HALF_OPEN -> CLOSED aplicada fuera de orden dejaría mal el status de los agentes.
+ *
+ * Un evento de un server corre recién cuando terminó el anterior del mismo server; servers distintos
+ * corren en paralelo (virtual threads).
+ */
+@Component
+public class McpServerEventDispatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(McpServerEventDispatcher.class);
+
+  private final ApplicationEventPublisher events;
+  private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+      Thread.ofVirtual().name("mcp-server-event-", 0).factory());
+
+  // último evento encolado por server: el siguiente se encadena detrás
+  private final ConcurrentHashMap<UUID, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+  public McpServerEventDispatcher(ApplicationEventPublisher events) {
+    this.events = events;
+  }
+
+  public void publish(UUID serverId, Object event) {
+    CompletableFuture<Void> next = tails.compute(serverId, (id, tail) ->
+        (tail != null ? tail : CompletableFuture.<Void>completedFuture(null))
+            .thenRunAsync(() -> deliver(serverId, event), executor));
+
+    // cola vacía: soltamos la entrada para no acumular un future por server
+    next.whenComplete((v, e) -> tails.remove(serverId, next));
+  }
+
+  private void deliver(UUID serverId, Object event) {
+    try {
+      events.publishEvent(event);
+    } catch (Exception e) {
+      log.warn("[MCP][EVENTS] listener failed for serverId={} event={}: {}",
+          serverId, event.getClass().getSimpleName(), e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+}
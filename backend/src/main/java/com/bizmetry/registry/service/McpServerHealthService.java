@@ -1,24 +1,33 @@
 package com.bizmetry.registry.service;
 
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
 import com.bizmetry.registry.jobs.McpToolNormalizer;
+import com.bizmetry.registry.mcp.McpRpcException;
 import com.bizmetry.registry.model.McpServer;
+import com.bizmetry.registry.model.McpServerHealth;
 import com.bizmetry.registry.model.McpServerStatus;
 import com.bizmetry.registry.repo.McpServerRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Service
@@ -26,14 +35,45 @@ public class McpServerHealthService {
 
   private static final Logger log = LoggerFactory.getLogger(McpServerHealthService.class);
 
+  private static final Map<String, Object> INITIALIZE_PARAMS = Map.of(
+      "protocolVersion", "2025-06-18",          // o "2025-03-26" si querés ir a lo seguro
+      "capabilities", Map.of(),                 // mínimo objeto vacío
+      "clientInfo", Map.of(
+          "name", "bizmetry-registry",
+          "version", "1.0"
+      )
+  );
+
   private final McpServerRepository repo;
   private final McpInvokeClient mcp;
   private final ObjectMapper om;
+  private final McpToolCatalogService toolCatalog;
+  private final McpProbeSchedulePolicy schedule;
+  private final McpHealthWriteBehind writeBehind;
+  private final McpServerEventDispatcher events;
+  private final McpPassiveHealth passive;
+  private final long catalogIntervalMs;
+  private final int maxToolPages;
+
+  // servers que mandaron notifications/tools/list_changed desde su último probe
+  private final Set<UUID> staleCatalogs = ConcurrentHashMap.newKeySet();
 
-  public McpServerHealthService(McpServerRepository repo, McpInvokeClient mcp, ObjectMapper om) {
+  public McpServerHealthService(McpServerRepository repo, McpInvokeClient mcp, ObjectMapper om,
+      McpToolCatalogService toolCatalog, McpProbeSchedulePolicy schedule, McpHealthWriteBehind writeBehind,
+      McpServerEventDispatcher events,
+      McpPassiveHealth passive,
+      @Value("${bizmetry.mcp.healthcheck.catalogIntervalMs:900000}") long catalogIntervalMs,
+      @Value("${bizmetry.mcp.healthcheck.maxToolPages:50}") int maxToolPages) {
     this.repo = repo;
     this.mcp = mcp;
     this.om = om;
+    this.toolCatalog = toolCatalog;
+    this.schedule = schedule;
+    this.writeBehind = writeBehind;
+    this.events = events;
+    this.passive = passive;
+    this.catalogIntervalMs = Math.max(0, catalogIntervalMs);
+    this.maxToolPages = Math.max(1, maxToolPages);
   }
 
   /**
@@ -50,64 +90,305 @@ public class McpServerHealthService {
 
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public McpServer refreshNow(McpServer s) {
-    UUID id = s.getServerId();
-    String url = s.getDiscoveryUrl();
+    log.info("[MCP][HEALTH] start serverId={} name='{}' url={}", s.getServerId(), s.getName(), s.getDiscoveryUrl());
 
-    log.info("[MCP][HEALTH] start serverId={} name='{}' url={}", id, s.getName(), url);
+    // (Opcional) initialize: si tu server realmente lo necesita.
+    // Si no, lo salteamos para no romper servidores que no soportan initialize por HTTP.
+    McpProbeResult result = probe(s, false);
 
-    ObjectNode doc = ensureDocObject(s.getServerDoc());
-    Instant now = Instant.now();
+    McpServerHealth h = record(s.getServerId(), writeBehind.current(s.getServerId()), result);
+    if (result.isOk() && result.isCatalog()) {
+      String hash = McpToolNormalizer.hash(result.getTools(), om);
+      if (!hash.equals(s.getToolsHash())) {
+        toolCatalog.sync(s.getServerId(), result.getTools());
+        writeTools(s, result.getTools(), hash, result.getProbedAt());
+      }
+    }
+
+    // refresh pedido por el usuario: el status se ve ya, el resto de health via write-behind
+    McpServerStatus before = s.getStatus();
+    s.setStatus(h.getStatus());
+    McpServer saved = repo.save(s);
+    writeBehind.enqueue(h);
+
+    logResult(saved.getServerId(), h, result);
+    publishStatusChange(saved.getServerId(), before, h.getStatus(), "refresh");
+    return saved;
+  }
+
+  /**
+   * Probe del job, por niveles:
+   * - liveness (ping) en la cadencia corta: barato, no baja ni normaliza el catálogo; se saltea si
+   *   las invocaciones reales recientes ya muestran al server sano ({@link McpPassiveHealth});
+   * - catálogo (initialize + tools/list completo) cada bizmetry.mcp.healthcheck.catalogIntervalMs,
+   *   cuando el server avisó notifications/tools/list_changed, o si venía FAILED / nunca se probeó.
+   *
+   * @param prev último health conocido del server (null si nunca se probeó)
+   */
+  public McpProbeResult probeTiered(McpServer s, McpServerHealth prev) {
+    boolean catalog = catalogDue(s.getServerId(), prev, Instant.now());
+    if (catalog) return probe(s, true);
+
+    // tráfico real reciente y sano: ya sabemos que está vivo, no hace falta salir a la red
+    long liveLatencyMs = passive.recentlyHealthyLatency(s.getServerId());
+    if (liveLatencyMs >= 0) {
+      log.debug("   ↪ skip ping on {}: recent live traffic is healthy", s.getDiscoveryUrl());
+      return McpProbeResult.alive(liveLatencyMs);
+    }
+
+    return probeLiveness(s);
+  }
+
+  /**
+   * Liveness: ping. Un error JSON-RPC (p.ej. method not found en servers que no implementan ping)
+   * también prueba que el server está vivo y contestando.
+   */
+  public McpProbeResult probeLiveness(McpServer s) {
+    long start = System.currentTimeMillis();
 
     try {
-      // (Opcional) initialize: si tu server realmente lo necesita.
-      // Si no, sacalo para no romper servidores que no soportan initialize por HTTP.
-      // mcp.call(s, "initialize", Map.of("client", Map.of("name","bizmetry-registry","version","1.0")), 10000L);
+      log.debug("   ↪ ping on {}", s.getDiscoveryUrl());
+      mcp.call(s, "ping", Map.of(), null); // timeout adaptativo (default 5s)
+      return McpProbeResult.alive(System.currentTimeMillis() - start);
+
+    } catch (McpRpcException e) {
+      log.debug("   ↪ ping not supported by {} ({}), server is up", s.getDiscoveryUrl(), e.getMessage());
+      return McpProbeResult.alive(System.currentTimeMillis() - start);
 
-      // tools/list (lo más práctico como health real)
-      Object result = mcp.call(s, "tools/list", Map.of(), 15000L);
+    } catch (Exception e) {
+      return McpProbeResult.failed(safeMsg(e), System.currentTimeMillis() - start);
+    }
+  }
+
+  /**
+   * El server avisó que cambió su lista de tools: el próximo probe es de catálogo.
+   */
+  public void markCatalogStale(UUID serverId) {
+    if (staleCatalogs.add(serverId)) {
+      log.info("[MCP][HEALTH] tools/list_changed from serverId={}, catalog refresh on next probe", serverId);
+    }
+  }
+
+  private boolean catalogDue(UUID serverId, McpServerHealth prev, Instant now) {
+    if (staleCatalogs.remove(serverId)) return true;
+    if (prev == null || prev.getLastCatalogTs() == null) return true;
+    // volviendo de FAILED: las tools pudieron cambiar mientras estuvo caído
+    if (prev.getStatus() != McpServerStatus.ACTIVE) return true;
+    return !prev.getLastCatalogTs().plusMillis(catalogIntervalMs).isAfter(now);
+  }
+
+  /**
+   * Probe de red completo (catálogo): initialize (opcional) + tools/list. No abre transacción ni toca la DB,
+   * así el job puede correr muchos en paralelo sin sostener conexiones JDBC.
+   */
+  public McpProbeResult probe(McpServer s, boolean initialize) {
+    long start = System.currentTimeMillis();
+
+    try {
+      if (initialize) {
+        log.debug("   ↪ initialize() on {}", s.getDiscoveryUrl());
+        mcp.call(s, "initialize", INITIALIZE_PARAMS, null); // timeout adaptativo (default 10s)
+      }
+
+      // tools/list (todas las páginas)
+      log.debug("   ↪ tools/list on {}", s.getDiscoveryUrl());
+      Object result = listAllTools(s);
 
       List<McpToolDefinition> tools = McpToolNormalizer.normalize(result, om);
+      return McpProbeResult.ok(tools, System.currentTimeMillis() - start);
+
+    } catch (Exception e) {
+      return McpProbeResult.failed(safeMsg(e), System.currentTimeMillis() - start);
+    }
+  }
+
+  /**
+   * tools/list siguiendo nextCursor (hasta maxToolPages páginas). Con una sola página devuelve el
+   * resultado tal cual, sin copiarlo.
+   */
+  private Object listAllTools(McpServer s) {
+    Object first = mcp.call(s, "tools/list", Map.of(), null); // timeout adaptativo (default 15s)
+    JsonNode page = om.valueToTree(first);
+    String cursor = nextCursor(page);
+    if (cursor == null) return first;
+
+    ArrayNode all = om.createArrayNode();
+    all.addAll(toolsOf(page));
 
-      // persist tools dentro del doc
-      ArrayNode toolsArr = doc.putArray("tools");
-      for (McpToolDefinition t : tools) {
-        ObjectNode tn = toolsArr.addObject();
-        tn.put("name", t.getName());
-        if (t.getDescription() != null) tn.put("description", t.getDescription());
-        if (t.getVersion() != null) tn.put("version", t.getVersion());
-        if (t.getArguments() != null) tn.set("arguments", t.getArguments());
+    Set<String> seen = new HashSet<>();
+    int pages = 1;
+    while (cursor != null && pages < maxToolPages && seen.add(cursor)) {
+      page = om.valueToTree(mcp.call(s, "tools/list", Map.of("cursor", cursor), null));
+      all.addAll(toolsOf(page));
+      cursor = nextCursor(page);
+      pages++;
+    }
+
+    if (cursor != null) {
+      log.warn("[MCP][HEALTH] tools/list of serverId={} truncated after {} pages", s.getServerId(), pages);
+    }
+
+    ObjectNode merged = om.createObjectNode();
+    merged.set("tools", all);
+    return merged;
+  }
+
+  private static String nextCursor(JsonNode page) {
+    JsonNode c = page.path("nextCursor");
+    return c.isTextual() && !c.asText().isBlank() ? c.asText() : null;
+  }
+
+  private static ArrayNode toolsOf(JsonNode page) {
+    JsonNode tools = page.path("tools");
+    return tools.isArray() ? (ArrayNode) tools : JsonNodeFactory.instance.arrayNode();
+  }
+
+  /**
+   * Registra el resultado de un probe del job. Lo normal (tools sin cambios o FAILED) solo encola
+   * la fila de health para el flush en batch; server_doc se reescribe únicamente si cambió el hash.
+   *
+   * @param prev último health conocido del server (null si nunca se probeó)
+   */
+  public void applyProbe(McpServer s, McpServerHealth prev, McpProbeResult result) {
+    UUID id = s.getServerId();
+    McpServerHealth h = record(id, prev, result);
+    McpServerStatus before = prev != null ? prev.getStatus() : s.getStatus();
+
+    if (result.isOk() && result.isCatalog()) {
+      String hash = McpToolNormalizer.hash(result.getTools(), om);
+      if (!hash.equals(s.getToolsHash())) {
+        // recargamos: el server pudo cambiar (o borrarse) mientras corría el probe
+        McpServer fresh = repo.findById(id).orElse(null);
+        if (fresh == null) return;
+
+        // primero el catálogo: si falla, el hash no se guarda y el próximo probe reintenta
+        toolCatalog.sync(id, result.getTools());
+        writeTools(fresh, result.getTools(), hash, result.getProbedAt());
+        repo.save(fresh);
+      }
+    }
+
+    writeBehind.enqueue(h);
+    logResult(id, h, result);
+    publishStatusChange(id, before, h.getStatus(), "probe");
+  }
+
+  /**
+   * Server eliminado: descarta su health.
+   */
+  public void forget(UUID serverId) {
+    writeBehind.forget(serverId);
+  }
+
+  /**
+   * El breaker de invocaciones ve el problema antes que el próximo sweep: reflejamos OPEN como FAILED
+   * (y adelantamos el probe a cuando el breaker vuelve a dejar pasar llamadas) y el cierre como ACTIVE.
+   * HALF_OPEN no cambia nada: todavía no sabemos.
+   */
+  @EventListener
+  public void onCircuitStateChanged(McpCircuitStateChangedEvent ev) {
+    McpServerStatus status;
+    if (ev.to() == McpCircuitBreakers.State.OPEN) status = McpServerStatus.FAILED;
+    else if (ev.to() == McpCircuitBreakers.State.CLOSED) status = McpServerStatus.ACTIVE;
+    else return;
+
+    McpServerHealth prev = writeBehind.current(ev.serverId());
+
+    McpServerHealth h = new McpServerHealth(ev.serverId());
+    h.setStatus(status);
+    if (prev != null) {
+      h.setLastProbeTs(prev.getLastProbeTs());
+      h.setLatencyMs(prev.getLatencyMs());
+      h.setConsecutiveFailures(prev.getConsecutiveFailures());
+      h.setConsecutiveSuccesses(prev.getConsecutiveSuccesses());
+      h.setNextProbeTs(prev.getNextProbeTs());
+      h.setLastCatalogTs(prev.getLastCatalogTs());
+    }
+    if (status == McpServerStatus.FAILED) {
+      h.setLastError(truncate("circuit breaker opened: " + ev.reason()));
+      if (h.getNextProbeTs() == null || h.getNextProbeTs().isAfter(ev.retryAt())) {
+        h.setNextProbeTs(ev.retryAt());
       }
+    }
+
+    writeBehind.enqueue(h);
+    publishStatusChange(ev.serverId(), prev != null ? prev.getStatus() : null, status, "circuit breaker " + ev.to());
+  }
+
+  /**
+   * Publica {@link McpServerStatusChangedEvent} si el status cambió. Los listeners (status de agentes)
+   * pueden salir a la red: se despachan aparte, en orden por server, para no frenar probes ni transacciones.
+   */
+  private void publishStatusChange(UUID serverId, McpServerStatus from, McpServerStatus to, String reason) {
+    if (to == null || to == from) return;
 
-      doc.put("last_tools_refresh_ts", now.toString());
-      doc.put("last_healthcheck_ts", now.toString());
-      doc.remove("last_healthcheck_error");
+    McpServerStatusChangedEvent ev = new McpServerStatusChangedEvent(serverId, from, to, reason, Instant.now());
+    log.info("[MCP][HEALTH] status changed serverId={} {} -> {} ({})", serverId, from, to, reason);
 
-      s.setServerDoc(doc);
-      s.setStatus(McpServerStatus.ACTIVE);
+    events.publish(serverId, ev);
+  }
 
-      McpServer saved = repo.save(s);
+  private McpServerHealth record(UUID serverId, McpServerHealth prev, McpProbeResult result) {
+    McpServerHealth h = new McpServerHealth(serverId);
+    h.setStatus(result.isOk() ? McpServerStatus.ACTIVE : McpServerStatus.FAILED);
+    h.setLastProbeTs(result.getProbedAt());
+    h.setLastError(truncate(result.getError()));
+    h.setLatencyMs(result.getLatencyMs());
+    schedule.record(h, prev, result.isOk(), result.getProbedAt());
+    if (result.isOk() && result.isCatalog()) h.setLastCatalogTs(result.getProbedAt());
+    else if (prev != null) h.setLastCatalogTs(prev.getLastCatalogTs());
+    return h;
+  }
 
-      log.info("[MCP][HEALTH] OK serverId={} tools={} status={}",
-          id, tools.size(), saved.getStatus());
+  private void writeTools(McpServer s, List<McpToolDefinition> tools, String hash, Instant now) {
+    ObjectNode doc = ensureDocObject(s.getServerDoc());
 
-      return saved;
+    // el TTL de cache lo puso un operador: sobrevive a la reescritura de las tools
+    Map<String, JsonNode> cacheTtls = new HashMap<>();
+    for (JsonNode prev : doc.path("tools")) {
+      if (prev.hasNonNull("cacheTtlSeconds")) cacheTtls.put(prev.path("name").asText(), prev.get("cacheTtlSeconds"));
+    }
 
-    } catch (Exception e) {
-      String msg = safeMsg(e);
-      doc.put("last_healthcheck_ts", now.toString());
-      doc.put("last_healthcheck_error", msg);
+    // persist tools dentro del doc
+    ArrayNode toolsArr = doc.putArray("tools");
+    for (McpToolDefinition t : tools) {
+      ObjectNode tn = toolsArr.addObject();
+      tn.put("name", t.getName());
+      if (t.getDescription() != null) tn.put("description", t.getDescription());
+      if (t.getVersion() != null) tn.put("version", t.getVersion());
+      if (t.getArguments() != null) tn.set("arguments", t.getArguments());
+      if (t.getAnnotations() != null) tn.set("annotations", t.getAnnotations());
+      if (cacheTtls.containsKey(t.getName())) tn.set("cacheTtlSeconds", cacheTtls.get(t.getName()));
+    }
 
-      s.setServerDoc(doc);
-      s.setStatus(McpServerStatus.FAILED);
+    // legacy: antes el health vivía dentro del doc
+    doc.remove("last_tools_refresh_ts");
+    doc.remove("last_healthcheck_ts");
+    doc.remove("last_healthcheck_error");
 
-      McpServer saved = repo.save(s);
+    s.setServerDoc(doc);
+    s.setToolsHash(hash);
+    s.setLastToolsRefreshTs(now);
 
-      log.warn("[MCP][HEALTH] FAILED serverId={} status={} error={}", id, saved.getStatus(), msg);
+    log.info("[MCP][HEALTH] tools changed serverId={} tools={}", s.getServerId(), tools.size());
+  }
 
-      return saved;
+  private void logResult(UUID id, McpServerHealth h, McpProbeResult result) {
+    if (result.isOk()) {
+      log.debug("[MCP][HEALTH] OK serverId={} tier={} tools={} latencyMs={} nextProbe={}",
+          id, result.isCatalog() ? "catalog" : "liveness", result.isCatalog() ? result.getTools().size() : "-",
+          result.getLatencyMs(), h.getNextProbeTs());
+    } else {
+      log.warn("[MCP][HEALTH] FAILED serverId={} failures={} nextProbe={} error={}",
+          id, h.getConsecutiveFailures(), h.getNextProbeTs(), result.getError());
     }
   }
 
+  private String truncate(String error) {
+    if (error == null || error.length() <= 2000) return error;
+    return error.substring(0, 2000);
+  }
+
   private ObjectNode ensureDocObject(JsonNode doc) {
     if (doc != null && doc.isObject()) return (ObjectNode) doc;
     return om.createObjectNode();
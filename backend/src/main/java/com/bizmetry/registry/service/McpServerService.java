@@ -1,21 +1,33 @@
 package com.bizmetry.registry.service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.bizmetry.registry.dto.agent.AgentDTO;
 import com.bizmetry.registry.dto.agent.MetadataDTO;
 import com.bizmetry.registry.dto.mcpserver.McpServerCreateRequest;
+import com.bizmetry.registry.dto.mcpserver.McpServerPageResponse;
 import com.bizmetry.registry.dto.mcpserver.McpServerResponse;
 import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
+import com.bizmetry.registry.dto.mcpserver.ToolBatchInvokeRequest;
+import com.bizmetry.registry.dto.mcpserver.ToolBatchInvokeResponse;
+import com.bizmetry.registry.dto.mcpserver.ToolCacheSettings;
 import com.bizmetry.registry.dto.mcpserver.ToolInvokeRequest;
 import com.bizmetry.registry.dto.mcpserver.ToolInvokeResponse;
 import com.bizmetry.registry.dto.mcpserver.registry.McpRegistryDefinition;
@@ -23,40 +35,92 @@ import com.bizmetry.registry.dto.mcpserver.registry.McpRegistryDefinition.Offici
 import com.bizmetry.registry.dto.mcpserver.registry.McpRegistryDefinition.Remote;
 import com.bizmetry.registry.dto.mcpserver.registry.McpRegistryDefinition.Server;
 import com.bizmetry.registry.model.Agent;
+import com.bizmetry.registry.mcp.McpAuth;
+import com.bizmetry.registry.mcp.McpLatencyTracker;
+import com.bizmetry.registry.mcp.McpSingleFlight;
 import com.bizmetry.registry.model.McpServer;
+import com.bizmetry.registry.model.McpServerTool;
 import com.bizmetry.registry.model.McpServerStatus;
 import com.bizmetry.registry.repo.AgentRepository;
+import com.bizmetry.registry.repo.McpServerCursor;
 import com.bizmetry.registry.repo.McpServerRepository;
+import com.bizmetry.registry.web.errors.BadRequestException;
 import com.bizmetry.registry.web.errors.NotFoundException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 @Service
 public class McpServerService {
 
+  private static final Logger log = LoggerFactory.getLogger(McpServerService.class);
+
   private static final String MCP_REGISTRY_SERVER_SCHEMA = "https://static.modelcontextprotocol.io/schemas/2025-09-29/server.schema.json";
 
   private static final String MCP_REGISTRY_OFFICIAL_META_KEY = "io.modelcontextprotocol.registry/official";
 
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 500;
+
   private final McpServerRepository repo;
   private final ObjectMapper om;
   private final McpInvokeClient invokeClient;
   private final McpServerHealthService health;
   private final AgentRepository agentRepository;
+  private final AgentToolRefService toolRefs;
+  private final McpToolCatalogService toolCatalog;
+  private final McpCircuitBreakers breakers;
+  private final McpSingleFlight singleFlight;
+  private final McpToolResultCache resultCache;
+  private final McpHedging hedging;
+  private final McpLatencyTracker latencies;
+  private final McpPassiveHealth passive;
+
+  private final int batchMaxItems;
+  private final int batchMaxConcurrency;
+  private final long batchDeadlineMs;
+  private final long batchMaxDeadlineMs;
 
   public McpServerService(
       McpServerRepository repo,
       ObjectMapper om,
       McpInvokeClient invokeClient,
       McpServerHealthService health,
-      AgentRepository agentRepository) {
+      AgentRepository agentRepository,
+      AgentToolRefService toolRefs,
+      McpToolCatalogService toolCatalog,
+      McpCircuitBreakers breakers,
+      McpSingleFlight singleFlight,
+      McpToolResultCache resultCache,
+      McpHedging hedging,
+      McpLatencyTracker latencies,
+      McpPassiveHealth passive,
+      @Value("${bizmetry.mcp.batch.maxItems:50}") int batchMaxItems,
+      @Value("${bizmetry.mcp.batch.maxConcurrency:20}") int batchMaxConcurrency,
+      @Value("${bizmetry.mcp.batch.deadlineMs:30000}") long batchDeadlineMs,
+      @Value("${bizmetry.mcp.batch.maxDeadlineMs:120000}") long batchMaxDeadlineMs) {
     this.repo = repo;
     this.om = om;
     this.invokeClient = invokeClient;
     this.health = health;
     this.agentRepository = agentRepository;
+    this.toolRefs = toolRefs;
+    this.toolCatalog = toolCatalog;
+    this.breakers = breakers;
+    this.singleFlight = singleFlight;
+    this.resultCache = resultCache;
+    this.hedging = hedging;
+    this.latencies = latencies;
+    this.passive = passive;
+    this.batchMaxItems = Math.max(1, batchMaxItems);
+    this.batchMaxConcurrency = Math.max(1, batchMaxConcurrency);
+    this.batchDeadlineMs = Math.max(1, batchDeadlineMs);
+    this.batchMaxDeadlineMs = Math.max(this.batchDeadlineMs, batchMaxDeadlineMs);
   }
 
   // ------------------------------------------------------------------
@@ -68,36 +132,69 @@ public class McpServerService {
   }
 
   // ------------------------------------------------------------------
-  // LIST (new): search + sort (in-memory)
+  // LIST (new): search + sort (resuelto en Postgres, sin límite)
   // ------------------------------------------------------------------
   @Transactional(readOnly = true)
   public List<McpServerResponse> list(boolean includeTools, String q, String sortBy, String sortDir) {
 
     String term = normalizeSearch(q);
+    String sb = normalizeSortBy(sortBy);
+    boolean asc = "asc".equalsIgnoreCase(sortDir == null ? null : sortDir.trim());
 
-    List<McpServer> all = repo.findAll(); // ✅ sin cambiar repo: funciona ya
+    List<McpServer> servers = repo.search(term, sb, asc, null, null, null);
 
-    // ✅ 1) FILTRO (search) por server.name o tools[].name
-    List<McpServer> filtered;
-    if (term == null) {
-      filtered = all;
-    } else {
-      filtered = new ArrayList<>();
-      for (McpServer s : all) {
-        if (matchesServerOrTools(s, term)) {
-          filtered.add(s);
-        }
+    List<McpServerResponse> out = new ArrayList<>(servers.size());
+    for (McpServer s : servers)
+      out.add(toResponse(s, includeTools));
+    return out;
+  }
+
+  // ------------------------------------------------------------------
+  // LIST (paged): search + sort + keyset cursor / offset en Postgres
+  // ------------------------------------------------------------------
+  @Transactional(readOnly = true)
+  public McpServerPageResponse page(boolean includeTools, String q, String sortBy, String sortDir,
+      Integer page, String cursor, Integer size) {
+
+    String term = normalizeSearch(q);
+    String sb = normalizeSortBy(sortBy);
+    boolean asc = "asc".equalsIgnoreCase(sortDir == null ? null : sortDir.trim());
+
+    int sz = (size == null || size < 1) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+    McpServerCursor after = null;
+    if (cursor != null && !cursor.isBlank()) {
+      try {
+        after = McpServerCursor.decode(cursor);
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException(e.getMessage());
+      }
+      if (!after.matches(sb)) {
+        throw new BadRequestException("cursor does not match sortBy=" + sb);
       }
     }
 
-    // ✅ 2) SORT
-    Comparator<McpServer> cmp = buildComparator(sortBy, sortDir);
-    filtered.sort(cmp);
+    int pg = (page == null || page < 0) ? 0 : page;
+    Integer offset = (after == null) ? pg * sz : null;
 
-    // ✅ 3) MAP a response
-    List<McpServerResponse> out = new ArrayList<>(filtered.size());
-    for (McpServer s : filtered)
-      out.add(toResponse(s, includeTools));
+    // pedimos 1 extra para saber si hay más
+    List<McpServer> rows = repo.search(term, sb, asc, after, offset, sz + 1);
+
+    boolean hasMore = rows.size() > sz;
+    if (hasMore)
+      rows = rows.subList(0, sz);
+
+    McpServerPageResponse out = new McpServerPageResponse();
+    out.items = new ArrayList<>(rows.size());
+    for (McpServer s : rows)
+      out.items.add(toResponse(s, includeTools));
+
+    out.size = sz;
+    out.page = (after == null) ? pg : null;
+    out.hasMore = hasMore;
+    out.nextCursor = (hasMore && !rows.isEmpty())
+        ? McpServerCursor.of(rows.get(rows.size() - 1), sb).encode()
+        : null;
     return out;
   }
 
@@ -108,56 +205,16 @@ public class McpServerService {
     return t.isEmpty() ? null : t;
   }
 
-  private boolean matchesServerOrTools(McpServer s, String termLower) {
-    // server name
-    String name = s.getName();
-    if (name != null && name.toLowerCase().contains(termLower))
-      return true;
-
-    // tools names (desde serverDoc persistido)
-    List<McpToolDefinition> tools = extractTools(s.getServerDoc());
-    for (McpToolDefinition t : tools) {
-      if (t == null || t.getName() == null)
-        continue;
-      if (t.getName().toLowerCase().contains(termLower))
-        return true;
-    }
-    return false;
-  }
-
-  private Comparator<McpServer> buildComparator(String sortBy, String sortDir) {
-    String sb = (sortBy == null ? "updatedTs" : sortBy.trim());
-    String sd = (sortDir == null ? "desc" : sortDir.trim());
-
-    Comparator<McpServer> base;
-
+  private String normalizeSortBy(String sortBy) {
+    String sb = (sortBy == null ? "" : sortBy.trim());
     switch (sb) {
       case "name":
-        base = Comparator.comparing(
-            s -> safeLower(s.getName()),
-            Comparator.nullsLast(String::compareTo));
-        break;
-
       case "createdTs":
-        base = Comparator.comparing(
-            McpServer::getCreatedTs,
-            Comparator.nullsLast(Comparator.naturalOrder()));
-        break;
-
+        return sb;
       case "updatedTs":
       default:
-        base = Comparator.comparing(
-            McpServer::getUpdatedTs,
-            Comparator.nullsLast(Comparator.naturalOrder()));
-        break;
+        return "updatedTs";
     }
-
-    boolean asc = "asc".equalsIgnoreCase(sd);
-    return asc ? base : base.reversed();
-  }
-
-  private String safeLower(String s) {
-    return s == null ? null : s.toLowerCase();
   }
 
   // ------------------------------------------------------------------
@@ -195,6 +252,8 @@ public class McpServerService {
     s.setServerDoc(buildDoc(s.getServerId(), req));
     s = repo.save(s);
 
+    toolCatalog.sync(s.getServerId(), req.getTools());
+
     // Devolver la respuesta del servidor
     return toResponse(s, true);
   }
@@ -211,6 +270,7 @@ public class McpServerService {
       s.get().setRepositoryUrl(req.getRepositoryUrl());
       s.get().setServerDoc(buildDoc(s.get().getServerId(), req));
       repo.save(s.get());
+      toolCatalog.sync(s.get().getServerId(), req.getTools());
       return toResponse(s.get(), true);
 
     } else {
@@ -224,7 +284,8 @@ public class McpServerService {
       q.setStatus(McpServerStatus.ACTIVE);
       q.setRepositoryUrl(req.getRepositoryUrl());
       q.setServerDoc(buildDoc(q.getServerId(), req));
-      repo.save(q);
+      q = repo.save(q);
+      toolCatalog.sync(q.getServerId(), req.getTools());
 
       return toResponse(q, true);
     }
@@ -248,6 +309,8 @@ public class McpServerService {
     s.setRepositoryUrl(req.getRepositoryUrl());
 
     s = repo.save(s);
+    toolCatalog.sync(serverId, req.getTools());
+    resultCache.invalidate(serverId, null); // puede haber cambiado la URL o los TTLs
 
     // Ejecutar healthcheck y persistir estado/herramientas
     try {
@@ -279,25 +342,28 @@ public class McpServerService {
   @Transactional
   public void delete(UUID serverId) {
 
-    System.out.println("🗑️ Starting deletion of MCP Server: " + serverId);
+    log.info("🗑️ Starting deletion of MCP Server: {}", serverId);
 
     if (!repo.existsById(serverId)) {
-      System.out.println("❌ MCP Server not found: " + serverId);
+      log.warn("❌ MCP Server not found: {}", serverId);
       throw new NotFoundException("MCP Server not found: " + serverId);
     }
 
     repo.deleteById(serverId);
-    System.out.println("✅ MCP Server deleted from repository: " + serverId);
-
-    int totalAgentsProcessed = 0;
+    toolCatalog.deleteByServer(serverId);
+    health.forget(serverId);
+    breakers.forget(serverId);
+    resultCache.invalidate(serverId, null);
+    latencies.forget(serverId);
+    passive.forget(serverId);
+
+    // solo los agentes que referencian el server (agent_tool_refs), no todos
+    List<UUID> agentIds = toolRefs.agentIdsUsing(serverId, null);
     int totalAgentsUpdated = 0;
 
-    for (Agent agent : agentRepository.findAll()) {
-
-      totalAgentsProcessed++;
-      System.out.println("🔎 Checking Agent: " + agent.getAgentId());
-
+    for (Agent agent : agentRepository.findAllById(agentIds)) {
       MetadataDTO metadata = MetadataDTO.fromJsonNode(agent.getMetadata());
+      if (metadata.getTools() == null) continue;
 
       int beforeCount = metadata.getTools().size();
 
@@ -305,23 +371,33 @@ public class McpServerService {
       boolean removed = metadata.getTools()
           .removeIf(tool -> Objects.equals(tool.getMcpServerId(), serverId));
 
-      int afterCount = metadata.getTools().size();
-
       if (removed) {
-        System.out.println("⚠️ Removed " + (beforeCount - afterCount) +
-            " tools from Agent: " + agent.getAgentId());
-
         agent.setMetadata(metadata.convertToJsonNode());
         agentRepository.save(agent);
-
         totalAgentsUpdated++;
-        System.out.println("💾 Agent metadata updated: " + agent.getAgentId());
+
+        log.debug("⚠️ Removed {} tools from Agent: {}", beforeCount - metadata.getTools().size(), agent.getAgentId());
       }
     }
 
-    System.out.println("🏁 Deletion process completed.");
-    System.out.println("📊 Agents processed: " + totalAgentsProcessed);
-    System.out.println("📊 Agents updated: " + totalAgentsUpdated);
+    toolRefs.deleteByServer(serverId);
+
+    log.info("🏁 MCP Server {} deleted | agents referencing={} agents updated={}",
+        serverId, agentIds.size(), totalAgentsUpdated);
+  }
+
+  /**
+   * Impacto: agentes que usan el server (o una tool puntual, si viene toolName).
+   */
+  @Transactional(readOnly = true)
+  public List<AgentDTO> agentsUsing(UUID serverId, String toolName) {
+    if (!repo.existsById(serverId)) {
+      throw new NotFoundException("MCP Server not found: " + serverId);
+    }
+
+    return agentRepository.findAllById(toolRefs.agentIdsUsing(serverId, toolName)).stream()
+        .map(AgentDTO::fromEntity)
+        .toList();
   }
 
   /// ------------------------------------------------------------------
@@ -467,6 +543,14 @@ public class McpServerService {
           tn.set("arguments", t.getArguments());
         }
 
+        if (t.getAnnotations() != null) {
+          tn.set("annotations", t.getAnnotations());
+        }
+
+        if (t.getCacheTtlSeconds() != null && t.getCacheTtlSeconds() > 0) {
+          tn.put("cacheTtlSeconds", t.getCacheTtlSeconds());
+        }
+
       }
     }
 
@@ -527,6 +611,16 @@ public class McpServerService {
         d.setArguments(args);
       }
 
+      JsonNode annotations = t.get("annotations");
+      if (annotations != null && annotations.isObject()) {
+        d.setAnnotations(annotations);
+      }
+
+      JsonNode cacheTtl = t.get("cacheTtlSeconds");
+      if (cacheTtl != null && cacheTtl.canConvertToInt()) {
+        d.setCacheTtlSeconds(cacheTtl.asInt());
+      }
+
       out.add(d);
     }
 
@@ -555,53 +649,74 @@ public class McpServerService {
   // ------------------------------------------------------------------
   // INVOKE TOOL
   // ------------------------------------------------------------------
-  @Transactional(readOnly = true)
-  public ToolInvokeResponse invokeTool(UUID serverId, String toolName, ToolInvokeRequest req) {
-    long start = System.currentTimeMillis();
+  // TOOL RESULT CACHE (opt-in por tool)
+  // ------------------------------------------------------------------
 
+  /**
+   * Marca una tool como cacheable por ttlSeconds (null o <= 0 la desmarca). Queda en el catálogo
+   * y en la entrada de la tool en serverDoc, y descarta lo que hubiera cacheado.
+   */
+  @Transactional
+  public ToolCacheSettings setToolCacheTtl(UUID serverId, String toolName, Integer ttlSeconds) {
     McpServer s = repo.findById(serverId)
         .orElseThrow(() -> new NotFoundException("MCP Server not found: " + serverId));
 
-    // ✅ validar tool existe (persistida)
-    boolean exists = extractTools(s.getServerDoc()).stream()
-        .anyMatch(t -> t.getName() != null && t.getName().equals(toolName));
-
-    if (!exists) {
-      exists = extractTools(s.getServerDoc()).stream()
-          .anyMatch(t -> t.getName() != null && t.getName().equalsIgnoreCase(toolName));
+    if (ttlSeconds != null && ttlSeconds < 0) {
+      throw new BadRequestException("ttlSeconds must be >= 0");
     }
 
-    if (!exists) {
-      throw new NotFoundException("Tool not found on server: " + toolName);
+    McpServerTool tool = toolCatalog.setCacheTtl(serverId, toolName, ttlSeconds)
+        .orElseThrow(() -> new NotFoundException("Tool not found on server: " + toolName));
+
+    if (s.getServerDoc() != null && s.getServerDoc().isObject()) {
+      ObjectNode doc = s.getServerDoc().deepCopy();
+      for (JsonNode t : doc.path("tools")) {
+        if (t.isObject() && tool.getName().equals(t.path("name").asText())) {
+          if (tool.getCacheTtlSeconds() != null) ((ObjectNode) t).put("cacheTtlSeconds", tool.getCacheTtlSeconds());
+          else ((ObjectNode) t).remove("cacheTtlSeconds");
+        }
+      }
+      // el TTL no es parte del catálogo del server: el hash sigue valiendo
+      String hash = s.getToolsHash();
+      s.setServerDoc(doc);
+      s.setToolsHash(hash);
+      repo.save(s);
     }
 
+    resultCache.invalidate(serverId, tool.getName());
+
+    ToolCacheSettings out = new ToolCacheSettings();
+    out.serverId = serverId;
+    out.toolName = tool.getName();
+    out.ttlSeconds = tool.getCacheTtlSeconds();
+    return out;
+  }
+
+  // ------------------------------------------------------------------
+  /**
+   * Invoca la tool sin bloquear: las validaciones (DB) corren en el thread del caller y la llamada
+   * MCP se resuelve en el Mono, sin sostener un thread de Tomcat.
+   * (Sin @Transactional: con retorno Mono Spring buscaría un ReactiveTransactionManager.)
+   */
+  public Mono<ToolInvokeResponse> invokeToolAsync(UUID serverId, String toolName, ToolInvokeRequest req) {
+    long start = System.currentTimeMillis();
+
+    McpServer s = repo.findById(serverId)
+        .orElseThrow(() -> new NotFoundException("MCP Server not found: " + serverId));
+
+    // ✅ validar tool existe (catálogo indexado; exacto y luego case-insensitive)
+    McpServerTool tool = toolCatalog.findIgnoreCase(serverId, toolName)
+        .orElseThrow(() -> new NotFoundException("Tool not found on server: " + toolName));
+
     boolean dryRun = req != null && Boolean.TRUE.equals(req.dryRun);
 
     ToolInvokeResponse resp = new ToolInvokeResponse();
     resp.serverId = serverId;
     resp.toolName = toolName;
 
-    // ✅ normalizar args: Object -> Map<String,Object>
-    @SuppressWarnings("unchecked")
-    Map<String, Object> args = (req != null && req.args instanceof Map)
-        ? (Map<String, Object>) req.args
-        : Map.of();
-
-    // ✅ normalizar timeout: Integer -> Long (ms)
-    Long timeoutMs = (req != null && req.timeoutMs != null)
-        ? req.timeoutMs.longValue()
-        : 30000L;
-
-    // ✅ bearer token opcional (si ya agregaste req.auth.bearerToken)
-    String bearer = null;
-    if (req != null && req.auth != null && req.auth.bearerToken != null) {
-      bearer = req.auth.bearerToken.trim();
-      if (bearer.toLowerCase().startsWith("bearer ")) {
-        bearer = bearer.substring(7).trim();
-      }
-      if (bearer.isBlank())
-        bearer = null;
-    }
+    Map<String, Object> args = argsOf(req);
+    Long timeoutMs = timeoutOf(req);
+    String bearer = bearerOf(req);
 
     if (dryRun) {
       resp.ok = true;
@@ -615,23 +730,221 @@ public class McpServerService {
 
       resp.result = node;
       resp.latencyMs = System.currentTimeMillis() - start;
-      return resp;
+      return Mono.just(resp);
     }
 
-    try {
-      // ✅ opción A (recomendada): agregar overload en McpInvokeClient que acepte
-      // bearer
-      Object result = invokeClient.invokeTool(s, toolName, args, timeoutMs, bearer);
+    McpAuth auth = McpAuth.bearer(bearer);
+
+    // ✅ cache opt-in (cacheTtlSeconds de la tool): un hit no sale al server
+    long cacheTtl = resultCache.ttlSeconds(tool.getCacheTtlSeconds());
+    McpToolResultCache.Key cacheKey = cacheTtl > 0 ? resultCache.key(serverId, tool.getName(), args, auth) : null;
+    if (cacheKey != null) {
+      JsonNode hit = resultCache.get(cacheKey);
+      if (hit != null) {
+        resp.ok = true;
+        resp.cached = true;
+        resp.result = hit;
+        resp.latencyMs = System.currentTimeMillis() - start;
+        return Mono.just(resp);
+      }
+    }
 
-      resp.ok = true;
-      resp.result = result;
-    } catch (Exception e) {
-      resp.ok = false;
-      resp.error = e.getMessage();
+    boolean sideEffectFree = McpToolCatalogService.isSideEffectFree(tool);
+    boolean hedge = sideEffectFree && hedging.enabled(req != null ? req.hedge : null);
+
+    // ✅ breaker + bulkhead por server: un server colgado falla rápido en vez de retener llamadas
+    // ✅ hedge opcional: segundo intento tras el p95 del server (cada intento pasa por el breaker)
+    Supplier<Mono<Object>> call = () -> {
+      Mono<Object> m = hedging.execute(serverId, hedge, timeoutMs,
+          () -> breakers.protect(serverId, () -> invokeClient.invokeToolAsync(s, toolName, args, timeoutMs, bearer)));
+      if (cacheKey == null) return m;
+      return m.map(r -> {
+        JsonNode stored = resultCache.put(cacheKey, r, cacheTtl);
+        return stored != null ? stored : r;
+      });
+    };
+
+    // ✅ tools read-only / idempotentes: llamadas idénticas concurrentes comparten el request upstream
+    Mono<Object> upstream = sideEffectFree
+        ? singleFlight.execute(
+            singleFlight.key(serverId, "tools/call", Map.of("name", toolName, "arguments", args), auth),
+            call)
+        : call.get();
+
+    return upstream
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty()) // el tool puede devolver result null
+        .map(result -> {
+          resp.ok = true;
+          resp.result = result.orElse(null);
+          resp.latencyMs = System.currentTimeMillis() - start;
+          return resp;
+        })
+        .onErrorResume(e -> {
+          resp.ok = false;
+          resp.error = e.getMessage();
+          resp.latencyMs = System.currentTimeMillis() - start;
+          return Mono.just(resp);
+        });
+  }
+
+  /**
+   * Batch: ejecuta los invokes en paralelo (hasta bizmetry.mcp.batch.maxConcurrency a la vez) con un
+   * deadline total. Cada item tiene la semántica de {@link #invokeToolAsync} (cache, breaker/bulkhead
+   * por server, hedging) y nunca hace fallar al batch: devuelve su propio ok/error/latencia, en el orden
+   * del request.
+   */
+  public Mono<ToolBatchInvokeResponse> invokeBatch(ToolBatchInvokeRequest req) {
+    long start = System.currentTimeMillis();
+
+    if (req == null || req.items == null || req.items.isEmpty()) {
+      throw new BadRequestException("items is required");
+    }
+    if (req.items.size() > batchMaxItems) {
+      throw new BadRequestException("Too many items in batch: " + req.items.size() + " (max " + batchMaxItems + ")");
     }
 
-    resp.latencyMs = System.currentTimeMillis() - start;
-    return resp;
+    long deadlineMs = (req.deadlineMs != null && req.deadlineMs > 0)
+        ? Math.min(req.deadlineMs, batchMaxDeadlineMs)
+        : batchDeadlineMs;
+    long deadline = start + deadlineMs;
+
+    AtomicBoolean deadlineExceeded = new AtomicBoolean(false);
+
+    return Flux.fromIterable(req.items)
+        .flatMapSequential(item -> Mono
+            // las validaciones de invokeToolAsync tocan la DB: fuera del event loop
+            .defer(() -> invokeToolAsync(item.serverId, item.toolName, item))
+            .subscribeOn(Schedulers.boundedElastic())
+            .timeout(Duration.ofMillis(Math.max(1, deadline - System.currentTimeMillis())))
+            .onErrorResume(e -> {
+              boolean timedOut = e instanceof TimeoutException;
+              if (timedOut) deadlineExceeded.set(true);
+              return Mono.just(failedItem(item, timedOut ? "Batch deadline exceeded (" + deadlineMs + "ms)" : e.getMessage(),
+                  System.currentTimeMillis() - start));
+            }), batchMaxConcurrency)
+        .collectList()
+        .map(results -> {
+          ToolBatchInvokeResponse out = new ToolBatchInvokeResponse();
+          out.results = results;
+          out.succeeded = (int) results.stream().filter(r -> r.ok).count();
+          out.failed = results.size() - out.succeeded;
+          out.deadlineExceeded = deadlineExceeded.get();
+          out.latencyMs = System.currentTimeMillis() - start;
+          return out;
+        });
+  }
+
+  private static ToolInvokeResponse failedItem(ToolBatchInvokeRequest.Item item, String error, long latencyMs) {
+    ToolInvokeResponse r = new ToolInvokeResponse();
+    r.serverId = item.serverId;
+    r.toolName = item.toolName;
+    r.ok = false;
+    r.error = error;
+    r.latencyMs = latencyMs;
+    return r;
+  }
+
+  /**
+   * Variante streaming del invoke (SSE): emite "start" apenas se validó el request, luego "progress" /
+   * "notification" por cada notificación del server a medida que llegan y cierra con "result" o "error"
+   * (el mismo {@link ToolInvokeResponse} del invoke normal). Sin cache, coalescing ni hedging.
+   */
+  public Flux<ServerSentEvent<Object>> invokeToolStream(UUID serverId, String toolName, ToolInvokeRequest req) {
+    long start = System.currentTimeMillis();
+
+    McpServer s = repo.findById(serverId)
+        .orElseThrow(() -> new NotFoundException("MCP Server not found: " + serverId));
+
+    if (toolCatalog.findIgnoreCase(serverId, toolName).isEmpty()) {
+      throw new NotFoundException("Tool not found on server: " + toolName);
+    }
+
+    Map<String, Object> args = argsOf(req);
+    Long timeoutMs = timeoutOf(req);
+    String bearer = bearerOf(req);
+
+    ToolInvokeResponse resp = new ToolInvokeResponse();
+    resp.serverId = serverId;
+    resp.toolName = toolName;
+
+    ObjectNode started = om.createObjectNode();
+    started.put("serverId", serverId.toString());
+    started.put("toolName", toolName);
+
+    AtomicBoolean finished = new AtomicBoolean(false);
+
+    Flux<ServerSentEvent<Object>> upstream = breakers
+        .protectMany(serverId, () -> invokeClient.invokeToolStream(s, toolName, args, timeoutMs, bearer))
+        .map(msg -> {
+          if (msg.has("error")) {
+            finished.set(true);
+            JsonNode error = msg.get("error");
+            resp.ok = false;
+            resp.error = error.path("message").asText(error.toString());
+            resp.latencyMs = System.currentTimeMillis() - start;
+            return sse("error", resp);
+          }
+          if (msg.has("result")) {
+            finished.set(true);
+            JsonNode result = msg.get("result");
+            resp.ok = true;
+            resp.result = result.isNull() ? null : result;
+            resp.latencyMs = System.currentTimeMillis() - start;
+            return sse("result", resp);
+          }
+          String method = msg.path("method").asText("");
+          if ("notifications/tools/list_changed".equals(method)) health.markCatalogStale(serverId);
+          JsonNode params = msg.has("params") ? msg.get("params") : msg;
+          return sse("notifications/progress".equals(method) ? "progress" : "notification", params);
+        })
+        .onErrorResume(e -> {
+          finished.set(true);
+          resp.ok = false;
+          resp.error = e.getMessage();
+          resp.latencyMs = System.currentTimeMillis() - start;
+          return Flux.just(sse("error", resp));
+        })
+        .concatWith(Flux.defer(() -> {
+          if (finished.get()) return Flux.empty();
+          resp.ok = false;
+          resp.error = "MCP stream ended without a response";
+          resp.latencyMs = System.currentTimeMillis() - start;
+          return Flux.just(sse("error", resp));
+        }));
+
+    return Flux.concat(Flux.just(sse("start", started)), upstream);
+  }
+
+  private static ServerSentEvent<Object> sse(String event, Object data) {
+    return ServerSentEvent.<Object>builder().event(event).data(data).build();
+  }
+
+  // ✅ normalizar args: Object -> Map<String,Object>
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> argsOf(ToolInvokeRequest req) {
+    return (req != null && req.args instanceof Map)
+        ? (Map<String, Object>) req.args
+        : Map.of();
+  }
+
+  // ✅ normalizar timeout: Integer -> Long (ms); null = adaptativo (p99 del server × factor, default 30s)
+  private static Long timeoutOf(ToolInvokeRequest req) {
+    return (req != null && req.timeoutMs != null)
+        ? req.timeoutMs.longValue()
+        : null;
+  }
+
+  // ✅ bearer token opcional (req.auth.bearerToken), sin el prefijo "Bearer "
+  private static String bearerOf(ToolInvokeRequest req) {
+    if (req == null || req.auth == null || req.auth.bearerToken == null)
+      return null;
+
+    String bearer = req.auth.bearerToken.trim();
+    if (bearer.toLowerCase().startsWith("bearer ")) {
+      bearer = bearer.substring(7).trim();
+    }
+    return bearer.isBlank() ? null : bearer;
   }
 
 }
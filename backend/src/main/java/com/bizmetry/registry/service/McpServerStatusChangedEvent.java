@@ -0,0 +1,19 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.bizmetry.registry.model.McpServerStatus;
+
+/**
+ * Cambio de status de un MCP server detectado por el health (probe, refresh o circuit breaker).
+ *
+ * @param from status anterior (null si no se conocía)
+ */
+public record McpServerStatusChangedEvent(
+    UUID serverId,
+    McpServerStatus from,
+    McpServerStatus to,
+    String reason,
+    Instant at) {
+}
@@ -0,0 +1,179 @@
+package com.bizmetry.registry.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
+import com.bizmetry.registry.model.McpServerTool;
+import com.bizmetry.registry.repo.McpServerToolRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Mantiene la tabla mcp_server_tools sincronizada con las tools de cada server
+ * y resuelve las consultas de existencia de tools con queries indexadas.
+ */
+@Service
+public class McpToolCatalogService {
+
+  private static final Logger log = LoggerFactory.getLogger(McpToolCatalogService.class);
+
+  private final McpServerToolRepository repo;
+
+  public McpToolCatalogService(McpServerToolRepository repo) {
+    this.repo = repo;
+  }
+
+  /**
+   * Reemplaza el catálogo del server por la lista recibida (diff: insert / update / delete).
+   * Solo toca las filas que realmente cambiaron.
+   *
+   * Bajo un advisory lock por server: dos sync concurrentes leerían el mismo catálogo viejo e
+   * insertarían los mismos nombres nuevos (uk_mcp_server_tools_server_name).
+   */
+  @Transactional
+  public void sync(UUID serverId, List<McpToolDefinition> tools) {
+    if (serverId == null)
+      return;
+
+    // dedupe por nombre (el último gana, igual que en server_doc)
+    Map<String, McpToolDefinition> wanted = new LinkedHashMap<>();
+    if (tools != null) {
+      for (McpToolDefinition t : tools) {
+        if (t == null || t.getName() == null || t.getName().isBlank())
+          continue;
+        wanted.put(t.getName().trim(), t);
+      }
+    }
+
+    repo.lockForSync(serverId);
+
+    Map<String, McpServerTool> current = new HashMap<>();
+    for (McpServerTool row : repo.findByServerId(serverId)) {
+      current.put(row.getName(), row);
+    }
+
+    List<McpServerTool> toSave = new ArrayList<>();
+    Instant now = Instant.now();
+
+    for (Map.Entry<String, McpToolDefinition> e : wanted.entrySet()) {
+      McpToolDefinition def = e.getValue();
+      McpServerTool row = current.remove(e.getKey());
+
+      // el TTL de cache lo define el operador: las tools que vienen del server (probe) no lo traen
+      // y no deben borrarlo; <= 0 lo desactiva explícitamente
+      Integer ttl = def.getCacheTtlSeconds();
+      boolean ttlChanged = ttl != null && !Objects.equals(row == null ? null : row.getCacheTtlSeconds(), positive(ttl));
+
+      if (row == null) {
+        row = new McpServerTool(serverId, e.getKey());
+      } else if (sameContent(row, def) && !ttlChanged) {
+        continue;
+      }
+
+      if (ttl != null) row.setCacheTtlSeconds(positive(ttl));
+
+      row.setDescription(def.getDescription());
+      row.setVersion(def.getVersion());
+      row.setArguments(def.getArguments());
+      row.setAnnotations(def.getAnnotations());
+      row.setUpdatedTs(now);
+      toSave.add(row);
+    }
+
+    if (!toSave.isEmpty())
+      repo.saveAll(toSave);
+
+    // lo que quedó en current ya no existe en el server
+    if (!current.isEmpty())
+      repo.deleteAll(current.values());
+
+    log.debug("[MCP][CATALOG] sync serverId={} upserted={} deleted={}", serverId, toSave.size(), current.size());
+  }
+
+  @Transactional
+  public void deleteByServer(UUID serverId) {
+    repo.deleteByServerId(serverId);
+  }
+
+  /**
+   * Existencia exacta de la tool en el server.
+   */
+  @Transactional(readOnly = true)
+  public boolean exists(UUID serverId, String toolName) {
+    if (serverId == null || toolName == null)
+      return false;
+    return repo.existsByServerIdAndName(serverId, toolName);
+  }
+
+  /**
+   * Existencia exacta y, si no aparece, case-insensitive.
+   */
+  @Transactional(readOnly = true)
+  public boolean existsIgnoreCase(UUID serverId, String toolName) {
+    if (serverId == null || toolName == null)
+      return false;
+    return repo.existsByServerIdAndName(serverId, toolName)
+        || repo.existsByServerIdAndNameIgnoreCase(serverId, toolName);
+  }
+
+  /**
+   * Fila de la tool: exacta y, si no aparece, case-insensitive.
+   */
+  @Transactional(readOnly = true)
+  public Optional<McpServerTool> findIgnoreCase(UUID serverId, String toolName) {
+    if (serverId == null || toolName == null)
+      return Optional.empty();
+    Optional<McpServerTool> exact = repo.findByServerIdAndName(serverId, toolName);
+    if (exact.isPresent())
+      return exact;
+    return repo.findByServerIdAndNameIgnoreCase(serverId, toolName).stream().findFirst();
+  }
+
+  /**
+   * La tool se declara sin efectos (readOnlyHint) o idempotente (idempotentHint): dos llamadas
+   * idénticas concurrentes pueden resolverse con una sola.
+   */
+  public static boolean isSideEffectFree(McpServerTool tool) {
+    if (tool == null || tool.getAnnotations() == null)
+      return false;
+    JsonNode a = tool.getAnnotations();
+    return a.path("readOnlyHint").asBoolean(false) || a.path("idempotentHint").asBoolean(false);
+  }
+
+  /**
+   * TTL de cache de una tool (PUT /tools/{tool}/cache). null o <= 0 lo desactiva.
+   */
+  @Transactional
+  public Optional<McpServerTool> setCacheTtl(UUID serverId, String toolName, Integer ttlSeconds) {
+    Optional<McpServerTool> row = findIgnoreCase(serverId, toolName);
+    row.ifPresent(t -> {
+      t.setCacheTtlSeconds(ttlSeconds == null ? null : positive(ttlSeconds));
+      t.setUpdatedTs(Instant.now());
+      repo.save(t);
+    });
+    return row;
+  }
+
+  private static Integer positive(Integer ttl) {
+    return (ttl == null || ttl <= 0) ? null : ttl;
+  }
+
+  private boolean sameContent(McpServerTool row, McpToolDefinition def) {
+    return Objects.equals(row.getDescription(), def.getDescription())
+        && Objects.equals(row.getVersion(), def.getVersion())
+        && Objects.equals(row.getArguments(), def.getArguments())
+        && Objects.equals(row.getAnnotations(), def.getAnnotations());
+  }
+}
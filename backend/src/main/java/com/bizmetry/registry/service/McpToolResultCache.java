@@ -0,0 +1,143 @@
+package com.bizmetry.registry.service;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bizmetry.registry.mcp.McpAuth;
+import com.bizmetry.registry.mcp.McpSingleFlight;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache opt-in de resultados de tools/call.
+ *
+ * Solo cachea tools que un operador marcó con cacheTtlSeconds (en la entrada de la tool en serverDoc
+ * o vía PUT /mcp-servers/{id}/tools/{tool}/cache). Key = serverId + tool + args canónicos + credencial.
+ *
+ * Acotado por peso (bytes del JSON serializado, bizmetry.mcp.resultCache.maxBytes) con la eviction
+ * W-TinyLFU de Caffeine; TTL por entrada. Hits/misses/evictions en Micrometer como cache "mcp.tool.results".
+ */
+@Component
+public class McpToolResultCache {
+
+  private static final Logger log = LoggerFactory.getLogger(McpToolResultCache.class);
+
+  private final ObjectMapper om;
+  private final McpSingleFlight keys;
+  private final boolean enabled;
+  private final long maxEntryBytes;
+  private final long maxTtlSeconds;
+
+  private final Cache<Key, Entry> cache;
+
+  public McpToolResultCache(
+      ObjectMapper om,
+      McpSingleFlight keys,
+      MeterRegistry meters,
+      @Value("${bizmetry.mcp.resultCache.enabled:true}") boolean enabled,
+      @Value("${bizmetry.mcp.resultCache.maxBytes:67108864}") long maxBytes,
+      @Value("${bizmetry.mcp.resultCache.maxEntryBytes:1048576}") long maxEntryBytes,
+      @Value("${bizmetry.mcp.resultCache.maxTtlSeconds:86400}") long maxTtlSeconds) {
+    this.om = om;
+    this.keys = keys;
+    this.enabled = enabled;
+    this.maxEntryBytes = maxEntryBytes;
+    this.maxTtlSeconds = maxTtlSeconds;
+
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(Math.max(1, maxBytes))
+        .weigher((Key k, Entry e) -> e.weight)
+        .expireAfter(new Expiry<Key, Entry>() {
+          @Override
+          public long expireAfterCreate(Key k, Entry e, long currentTime) {
+            return e.ttlNanos;
+          }
+
+          @Override
+          public long expireAfterUpdate(Key k, Entry e, long currentTime, long currentDuration) {
+            return e.ttlNanos;
+          }
+
+          @Override
+          public long expireAfterRead(Key k, Entry e, long currentTime, long currentDuration) {
+            return currentDuration; // leer no extiende el TTL
+          }
+        })
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meters, cache, "mcp.tool.results");
+  }
+
+  /**
+   * TTL efectivo (segundos) para la tool, o 0 si no se cachea.
+   */
+  public long ttlSeconds(Integer cacheTtlSeconds) {
+    if (!enabled || cacheTtlSeconds == null || cacheTtlSeconds <= 0) return 0;
+    return Math.min(cacheTtlSeconds, maxTtlSeconds);
+  }
+
+  public Key key(UUID serverId, String toolName, Map<String, Object> args, McpAuth auth) {
+    return new Key(serverId, toolName, keys.key(serverId, "tools/call:" + toolName, args, auth));
+  }
+
+  /**
+   * Resultado cacheado o null.
+   */
+  public JsonNode get(Key key) {
+    Entry e = cache.getIfPresent(key);
+    return e == null ? null : e.value;
+  }
+
+  /**
+   * Guarda el resultado si es cacheable: no es un error de la tool (isError) y no excede maxEntryBytes.
+   * Devuelve el JsonNode guardado (o null si no se guardó).
+   */
+  public JsonNode put(Key key, Object result, long ttlSeconds) {
+    if (ttlSeconds <= 0 || result == null) return null;
+
+    try {
+      byte[] bytes = om.writeValueAsBytes(result);
+      if (bytes.length > maxEntryBytes) {
+        log.debug("[MCP][CACHE] skip {} ({} bytes > maxEntryBytes)", key.toolName(), bytes.length);
+        return null;
+      }
+
+      JsonNode node = (result instanceof JsonNode n) ? n : om.readTree(bytes);
+      if (node.path("isError").asBoolean(false)) return null;
+
+      int weight = bytes.length + key.callKey().length();
+      cache.put(key, new Entry(node, weight, ttlSeconds * 1_000_000_000L));
+      return node;
+
+    } catch (Exception e) {
+      log.debug("[MCP][CACHE] cannot cache result of {}: {}", key.toolName(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Descarta lo cacheado de una tool (cambió su TTL) o de todo el server (toolName null).
+   */
+  public void invalidate(UUID serverId, String toolName) {
+    cache.asMap().keySet().removeIf(k ->
+        k.serverId().equals(serverId) && (toolName == null || k.toolName().equalsIgnoreCase(toolName)));
+  }
+
+  public record Key(UUID serverId, String toolName, String callKey) {
+  }
+
+  private record Entry(JsonNode value, int weight, long ttlNanos) {
+  }
+}
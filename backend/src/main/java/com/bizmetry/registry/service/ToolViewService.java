@@ -1,25 +1,31 @@
 package com.bizmetry.registry.service;
 
-import com.bizmetry.registry.dto.mcpserver.McpToolDefinition;
 import com.bizmetry.registry.dto.toolview.ToolViewResponse;
 import com.bizmetry.registry.model.McpServer;
+import com.bizmetry.registry.model.McpServerTool;
 import com.bizmetry.registry.repo.McpServerRepository;
+import com.bizmetry.registry.repo.McpServerToolRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ToolViewService {
 
   private final McpServerRepository serverRepo;
-  private final McpServerService mcpServerService;
+  private final McpServerToolRepository toolRepo;
 
-  public ToolViewService(McpServerRepository serverRepo, McpServerService mcpServerService) {
+  public ToolViewService(McpServerRepository serverRepo, McpServerToolRepository toolRepo) {
     this.serverRepo = serverRepo;
-    this.mcpServerService = mcpServerService;
+    this.toolRepo = toolRepo;
   }
 
   @Transactional(readOnly = true)
@@ -28,30 +34,32 @@ public class ToolViewService {
     if (size < 1) size = 50;
     if (size > 500) size = 500;
 
-    List<McpServer> servers = serverRepo.findAll();
-    List<ToolViewResponse> all = new ArrayList<>();
-
-    for (McpServer s : servers) {
-      List<McpToolDefinition> tools = mcpServerService.extractTools(s.getServerDoc());
-      for (McpToolDefinition t : tools) {
-        ToolViewResponse r = new ToolViewResponse();
-        r.serverId = s.getServerId();
-        r.serverName = s.getName();
-        r.serverVersion = s.getVersion();
-        r.discoveryUrl = s.getDiscoveryUrl();
-        r.name = t.getName();
-        r.description = t.getDescription();
-        r.version = t.getVersion();
-        all.add(r);
-      }
-    }
+    // paginado directo sobre el catálogo (name, version), sin recorrer server_doc
+    List<McpServerTool> tools = toolRepo
+        .findAllByOrderByNameAscVersionAsc(PageRequest.of(page - 1, size))
+        .getContent();
+
+    if (tools.isEmpty()) return List.of();
 
-    all.sort(Comparator.comparing((ToolViewResponse x) -> (x.name == null ? "" : x.name))
-        .thenComparing(x -> (x.version == null ? "" : x.version)));
+    Set<UUID> serverIds = tools.stream().map(McpServerTool::getServerId).collect(Collectors.toSet());
+    Map<UUID, McpServer> servers = serverRepo.findAllById(serverIds).stream()
+        .collect(Collectors.toMap(McpServer::getServerId, Function.identity()));
 
-    int from = (page - 1) * size;
-    if (from >= all.size()) return List.of();
-    int to = Math.min(all.size(), from + size);
-    return all.subList(from, to);
+    List<ToolViewResponse> out = new ArrayList<>(tools.size());
+    for (McpServerTool t : tools) {
+      McpServer s = servers.get(t.getServerId());
+      if (s == null) continue;
+
+      ToolViewResponse r = new ToolViewResponse();
+      r.serverId = s.getServerId();
+      r.serverName = s.getName();
+      r.serverVersion = s.getVersion();
+      r.discoveryUrl = s.getDiscoveryUrl();
+      r.name = t.getName();
+      r.description = t.getDescription();
+      r.version = (t.getVersion() != null) ? t.getVersion() : s.getVersion();
+      out.add(r);
+    }
+    return out;
   }
 }